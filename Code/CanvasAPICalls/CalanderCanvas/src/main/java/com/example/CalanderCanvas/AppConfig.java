@@ -1,13 +1,104 @@
 package com.example.CalanderCanvas;
 
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+import java.util.List;
+
 @Configuration
+@EnableScheduling // Runs the background Canvas sync and the push heartbeat.
 public class AppConfig {
+    /**
+     * RestTemplate for Canvas calls. The timeouts bound calls made without a request deadline
+     * (background syncs); calls made for a request are additionally cut off by its RequestDeadline.
+     */
+    @Bean
+    public RestTemplate restTemplate(RestTemplateBuilder builder,
+                                     @Value("${canvas.upstream.connect-timeout:5s}") Duration connectTimeout,
+                                     @Value("${canvas.upstream.read-timeout:30s}") Duration readTimeout){
+        return builder.connectTimeout(connectTimeout).readTimeout(readTimeout).build();
+    }
+
+    /**
+     * Executor the Canvas HTTP calls run on (see HedgedFetcher). With spring.threads.virtual.enabled (the
+     * default) every call gets its own virtual thread, and at most canvas.fetch.threads calls run at once; a
+     * call over the limit waits in execute() until one finishes. Otherwise it is a pool of canvas.fetch.threads
+     * platform threads with an unbounded queue. Either way canvas.fetch.threads bounds the concurrent Canvas
+     * calls. Fetch tasks never submit to this executor themselves (HedgedFetcher completes its futures off it),
+     * so the throttle slows fetches down but never deadlocks them.
+     */
+    @Bean
+    public AsyncTaskExecutor canvasFetchExecutor(Environment environment,
+                                                 ThreadPoolTaskExecutorBuilder pool,
+                                                 SimpleAsyncTaskExecutorBuilder simple,
+                                                 @Value("${canvas.fetch.threads:16}") int threads) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            return simple.virtualThreads(true).concurrencyLimit(threads).threadNamePrefix("canvas-fetch-").build();
+        }
+        return pool.corePoolSize(threads).maxPoolSize(threads).threadNamePrefix("canvas-fetch-").build();
+    }
+
+    /**
+     * Executor that delivers the push notifications (see NotificationBroadcaster): canvas.push.threads threads,
+     * kept apart from the Canvas calls so slow clients never hold up a crawl.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor canvasPushExecutor(ThreadPoolTaskExecutorBuilder builder,
+                                                     @Value("${canvas.push.threads:4}") int threads) {
+        return builder.corePoolSize(threads).maxPoolSize(threads).threadNamePrefix("canvas-push-").build();
+    }
+
+    /**
+     * Spring Boot's general-purpose executor, declared here because Boot stops auto-configuring it once other
+     * executor beans such as canvasFetchExecutor exist. Like Boot's own, it starts a virtual thread per task
+     * (spring.task.execution.simple.*) when virtual threads are enabled, and is a spring.task.execution.pool.*
+     * pool otherwise.
+     */
+    @Bean(name = "applicationTaskExecutor")
+    public AsyncTaskExecutor applicationTaskExecutor(Environment environment,
+                                                     ThreadPoolTaskExecutorBuilder pool,
+                                                     SimpleAsyncTaskExecutorBuilder simple) {
+        return Threading.VIRTUAL.isActive(environment) ? simple.virtualThreads(true).build() : pool.build();
+    }
+
+    /**
+     * Shared tier of the Canvas response cache. With canvas.cache.remote.nodes set (host:port, comma-separated)
+     * instances share Redis-protocol servers; otherwise an in-process stand-in is used, which is enough for a
+     * single instance.
+     */
+    @Bean
+    public SharedCache sharedCache(@Value("${canvas.cache.remote.nodes:}") List<String> nodes,
+                                   @Value("${canvas.cache.remote.timeout:250ms}") Duration timeout,
+                                   @Value("${canvas.cache.remote.pool-size:8}") int poolSize) {
+        List<String> addresses = nodes.stream().map(String::trim).filter(node -> !node.isEmpty()).toList();
+        return addresses.isEmpty() ? new InMemorySharedCache() : new RespSharedCache(addresses, timeout, poolSize);
+    }
+
+    /**
+     * Smile converter used when a client sends Accept: application/x-jackson-smile.
+     * Shared string values are enabled so repeated strings such as course names are written once
+     * and back-referenced afterwards, which is most of the saving on the bulk endpoints.
+     */
     @Bean
-    public RestTemplate restTemplate(){
-        return new RestTemplate();
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        SmileFactory smileFactory = SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(smileFactory).build());
     }
 }
@@ -7,13 +7,16 @@ import java.awt.Graphics;
 import java.awt.GraphicsEnvironment;
 import java.awt.GridLayout;
 import java.awt.RenderingHints;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.time.ZonedDateTime;
-import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -28,8 +31,13 @@ import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
 import javax.swing.border.EmptyBorder;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.web.client.RestTemplate;
 /**
@@ -41,17 +49,26 @@ import org.springframework.web.client.RestTemplate;
  * 
  * The application:
  * 1. Prompts the user for a Canvas API key.
- * 2. Runs the Spring application which uses the API key in the CanvasAPIService.
- * 3. Once the backend is ready, it displays a calendar UI where selecting a date shows the assignments for that day.
+ * 2. Builds the calendar window while the Spring application (which uses the API key in the CanvasAPIService)
+ *    boots and starts its first Canvas crawl.
+ * 3. Once the backend is ready, it fills the calendar from that crawl; selecting a date shows the assignments for that day.
  * 4. Shows bars indicating how many points are earned versus the total points for that day and for the entire month.
  */
 @SpringBootApplication
 public class CalanderCanvasApplication {
 
+    private static final Logger log = LoggerFactory.getLogger(CalanderCanvasApplication.class);
+
     // The main application frame (window)
     private static JFrame frame;
     // A map of LocalDate to a list of assignment strings. Each string holds assignment data.
     private static Map<LocalDate, List<String>> assignments = new HashMap<>();
+    // The record and date stored for each item id, so a change can find and replace the old record.
+    private static final Map<String, String> recordsById = new HashMap<>();
+    private static final Map<String, LocalDate> datesById = new HashMap<>();
+    // The backend dataset version this client has applied; sent back to /changes to get only the differences.
+    // Volatile because the notification listener thread reads it to skip notifications it has already applied.
+    private static volatile long datasetVersion = 0;
 
     // UI components for displaying assignments and navigation
     private static JPanel assignmentsListPanel; // Panel that holds the assignments list and graphs
@@ -60,6 +77,7 @@ public class CalanderCanvasApplication {
     private static JLabel monthYearLabel;        // Label showing the current month and year displayed
     private static JButton prevButton;           // Button to go to the previous month
     private static JButton nextButton;           // Button to go to the next month
+    private static JLabel statusLabel;           // Label showing the latest pushed notification
 
     // Maximum width in pixels for the assignment name text area, to wrap long names
     private static final int MAX_NAME_WIDTH_PX = 100;
@@ -117,13 +135,63 @@ public class CalanderCanvasApplication {
         }
     }
 
-        // Now that the API key is set, run the Spring application
+        // A devtools restart would call main() again and open a second window, so the window owns this JVM.
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        // Build the main UI panel on the Event Dispatch Thread while the Spring context boots on this thread.
+        // The CDS training run (spring.context.exit) only loads classes and exits, so it gets no window.
+        boolean windowed = !GraphicsEnvironment.isHeadless() && System.getProperty("spring.context.exit") == null;
+        if (windowed) {
+            SwingUtilities.invokeLater(() -> {
+                createMainPanel();
+                logStartupPhase("window visible");
+            });
+        }
+
+        // Now that the API key is set, run the Spring application.
+        // The backend starts its first Canvas crawl as soon as its beans exist (see CanvasWarmup).
         SpringApplication.run(CalanderCanvasApplication.class, args);
+        logStartupPhase("backend ready");
+        if (!windowed) {
+            // Headless: only the backend runs.
+            return;
+        }
 
-        // After Spring Boot context is initialized, create the main UI panel on the Event Dispatch Thread.
-        SwingUtilities.invokeLater(() -> {
-            createMainPanel();
-        });
+        // Populate the calendar from that first crawl instead of waiting for a manual refresh.
+        loadInitialData();
+
+        // Listen for pushed notifications so the calendar updates without pressing refresh.
+        startNotificationListener();
+    }
+
+    /**
+     * loadInitialData():
+     * Fetches the whole dataset from "/changes" (since=0) and shows it on the calendar. The backend joins the
+     * warm-up crawl it started during boot, so this usually returns as soon as that crawl finishes.
+     */
+    private static void loadInitialData() {
+        try {
+            ChangeFeed feed = fetchChangesFromBackend(0, false);
+            SwingUtilities.invokeLater(() -> {
+                applyChanges(feed);
+                updateCalendar(getCurrentDisplayedYearMonth());
+                statusLabel.setText(" ");
+                logStartupPhase("calendar populated (" + feed.upserts().size() + " items)");
+            });
+        } catch (Exception e) {
+            SwingUtilities.invokeLater(() ->
+                statusLabel.setText("Could not load assignments: " + e.getMessage() + " - press Refresh to retry"));
+        }
+    }
+
+    /**
+     * logStartupPhase(String phase):
+     * Logs how long after JVM start a startup phase was reached, e.g. "Startup: window visible after 850 ms".
+     * Time-to-window and time-to-first-populated-calendar are the two numbers to watch.
+     */
+    private static void logStartupPhase(String phase) {
+        long elapsed = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        log.info("Startup: {} after {} ms", phase, elapsed);
     }
 
     /**
@@ -185,6 +253,9 @@ public class CalanderCanvasApplication {
         JPanel controlsPanel = new JPanel();
         JButton refreshButton = new JButton("Refresh Assignments");
         controlsPanel.add(refreshButton);
+        statusLabel = new JLabel("Loading assignments...");
+        statusLabel.setFont(new Font("Arial", Font.ITALIC, 12));
+        controlsPanel.add(statusLabel);
         frame.add(controlsPanel, BorderLayout.SOUTH);
 
         // Action listener to refresh assignments data from the backend
@@ -216,56 +287,18 @@ public class CalanderCanvasApplication {
 
     /**
      * handleRefresh():
-     * Fetches updated assignments data from the backend, clears the old data, and repopulates the assignments map.
+     * Asks the backend for the changes since the dataset version this client last applied, and applies them
+     * to the assignments map in place. Only items that were added, changed or removed are transferred, so
+     * refreshing an unchanged term costs almost nothing.
      * Shows a message dialog upon successful refresh or an error if something goes wrong.
      */
     private static void handleRefresh() {
         try {
-            List<String> assignmentsData = fetchAssignmentsFromBackend();
+            ChangeFeed feed = fetchChangesFromBackend(datasetVersion, true);
+            applyChanges(feed);
 
-            // Clear existing assignment data
-            assignments.clear();
-
-            // Parse each assignment string returned from the backend
-            for (String entry : assignmentsData) {
-                String assignmentName = null;
-                String dueDateStr = null;
-                String totalPoints = null;
-                String pointsEarned = null;
-
-                // Each assignment line is CSV-like: "Assignment: NAME, Due Date: DATE, Total Points: TP, Points Earned: PE"
-                String[] parts = entry.split(",");
-                for (String part : parts) {
-                    String trimmed = part.trim();
-                    if (trimmed.startsWith("Assignment:")) {
-                        assignmentName = trimmed.replace("Assignment:", "").trim();
-                    } else if (trimmed.startsWith("Due Date:")) {
-                        dueDateStr = trimmed.replace("Due Date:", "").trim();
-                    } else if (trimmed.startsWith("Total Points:")) {
-                        totalPoints = trimmed.replace("Total Points:", "").trim();
-                    } else if (trimmed.startsWith("Points Earned:")) {
-                        pointsEarned = trimmed.replace("Points Earned:", "").trim();
-                    }
-                }
-
-                // Only add to the map if we have a valid assignment name and due date
-                if (assignmentName != null && dueDateStr != null && !dueDateStr.equals("No Due Date")) {
-                    try {
-                        // Parse the due date, convert to system's timezone, and get the LocalDate
-                        ZonedDateTime zdt = ZonedDateTime.parse(dueDateStr)
-                                .withZoneSameInstant(java.time.ZoneId.systemDefault());
-                        LocalDate date = zdt.toLocalDate();
-
-                        // Store record as "AssignmentName|ZonedDateTime|TotalPoints|PointsEarned"
-                        String record = assignmentName + "|" + zdt.toString() + "|" +
-                                        (totalPoints != null ? totalPoints : "N/A") + "|" +
-                                        (pointsEarned != null ? pointsEarned : "");
-                        assignments.computeIfAbsent(date, k -> new ArrayList<>()).add(record);
-                    } catch (DateTimeParseException ex) {
-                        System.err.println("Failed to parse date: " + dueDateStr);
-                    }
-                }
-            }
+            // Re-color the days of the month currently on screen
+            updateCalendar(getCurrentDisplayedYearMonth());
 
             JOptionPane.showMessageDialog(frame, 
                 "Assignments refreshed successfully.", 
@@ -280,18 +313,159 @@ public class CalanderCanvasApplication {
     }
 
     /**
-     * fetchAssignmentsFromBackend():
-     * Calls the backend endpoint "/course-assignments" to retrieve a list of assignment data strings.
-     * Returns an empty list if no data is found.
+     * applyChanges(ChangeFeed feed):
+     * Applies a change feed to the assignments map. A full feed replaces everything; otherwise removed items
+     * are dropped and upserted items replace whatever record they had before (their due date may have moved).
      */
-    private static List<String> fetchAssignmentsFromBackend() {
+    private static void applyChanges(ChangeFeed feed) {
+        // A feed older than what is already applied (e.g. a manual refresh racing a push) is stale.
+        if (feed.version() < datasetVersion) {
+            return;
+        }
+
+        if (feed.full()) {
+            assignments.clear();
+            recordsById.clear();
+            datesById.clear();
+        }
+
+        for (String id : feed.removed()) {
+            removeRecord(id);
+        }
+
+        for (CanvasItem item : feed.upserts()) {
+            removeRecord(item.id());
+
+            // Only dated assignments and quizzes are shown on the calendar
+            if (item.dueAt() == null || item.type() == CanvasItem.Type.EVENT) {
+                continue;
+            }
+
+            // Convert the due date to the system's timezone and get the LocalDate
+            ZonedDateTime zdt = item.dueAt().atZone(java.time.ZoneId.systemDefault());
+            LocalDate date = zdt.toLocalDate();
+
+            // Store record as "AssignmentName|ZonedDateTime|TotalPoints|PointsEarned"
+            String record = item.name() + "|" + zdt.toString() + "|" +
+                            (item.pointsPossible() != null ? item.pointsPossible() : "N/A") + "|" +
+                            (item.pointsEarned() != null ? item.pointsEarned() : "");
+            assignments.computeIfAbsent(date, k -> new ArrayList<>()).add(record);
+            recordsById.put(item.id(), record);
+            datesById.put(item.id(), date);
+        }
+
+        datasetVersion = feed.version();
+    }
+
+    /**
+     * removeRecord(String id):
+     * Removes the calendar record previously stored for the given item id, if any.
+     */
+    private static void removeRecord(String id) {
+        String record = recordsById.remove(id);
+        LocalDate date = datesById.remove(id);
+        if (record == null) {
+            return;
+        }
+        List<String> dayAssignments = assignments.get(date);
+        dayAssignments.remove(record);
+        if (dayAssignments.isEmpty()) {
+            assignments.remove(date);
+        }
+    }
+
+    /**
+     * fetchChangesFromBackend(long since, boolean refresh):
+     * Calls the backend endpoint "/changes" to retrieve the items changed since the given dataset version.
+     * refresh=true makes the backend re-sync with Canvas first, for when the user explicitly asked for fresh data.
+     */
+    private static ChangeFeed fetchChangesFromBackend(long since, boolean refresh) {
         RestTemplate restTemplate = new RestTemplate();
-        // Add JSON converter to parse JSON arrays of strings
+        // Add JSON converter to parse the change feed
         restTemplate.getMessageConverters().add(new MappingJackson2HttpMessageConverter());
 
-        URI uri = URI.create("http://localhost:8080/course-assignments");
-        List<String> response = restTemplate.getForObject(uri, List.class);
-        return response != null ? response : Collections.emptyList();
+        URI uri = URI.create("http://localhost:8080/changes?refresh=" + refresh + "&since=" + since);
+        ChangeFeed response = restTemplate.getForObject(uri, ChangeFeed.class);
+        if (response == null) {
+            throw new IllegalStateException("Empty response from backend");
+        }
+        return response;
+    }
+
+    /**
+     * startNotificationListener():
+     * Subscribes to the backend's "/notifications" Server-Sent Events stream on a background daemon thread.
+     * Each notification pulls the matching changes from "/changes" and applies them on the Event Dispatch
+     * Thread, and the latest notification is shown in the status label. If the stream ends (the backend closes
+     * it after canvas.push.connection-timeout), the listener reconnects after a short pause; if the backend is
+     * unreachable or a notification cannot be handled, the failure is logged and the pause doubles on each
+     * consecutive failure, up to a minute.
+     */
+    private static void startNotificationListener() {
+        Thread listener = new Thread(() -> {
+            ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+            long pauseMillis = 1000;
+            while (true) {
+                boolean failed = false;
+                try {
+                    HttpURLConnection connection = (HttpURLConnection) URI.create("http://localhost:8080/notifications").toURL().openConnection();
+                    connection.setRequestProperty("Accept", "text/event-stream");
+                    try (BufferedReader reader = new BufferedReader(
+                            new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+                        // SSE events are "event:" and "data:" lines terminated by a blank line
+                        StringBuilder data = new StringBuilder();
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            if (line.startsWith("data:")) {
+                                data.append(line.substring("data:".length()));
+                            } else if (line.isEmpty() && data.length() > 0) {
+                                onNotification(objectMapper.readValue(data.toString(), CanvasNotification.class));
+                                data.setLength(0);
+                            }
+                        }
+                    }
+                } catch (Exception e) {
+                    // Backend not reachable yet, the connection dropped, or a notification failed: retry below
+                    System.err.println("Notification stream failed (" + e + "), reconnecting in " + pauseMillis / 1000 + " s");
+                    failed = true;
+                }
+
+                try {
+                    Thread.sleep(pauseMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                // A stream the backend ended normally reconnects after the shortest pause
+                pauseMillis = failed ? Math.min(pauseMillis * 2, 60_000) : 1000;
+            }
+        }, "notification-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    /**
+     * onNotification(CanvasNotification notification):
+     * Pulls the changes behind a pushed notification (unless an earlier one already brought them in)
+     * and applies them on the Event Dispatch Thread, then shows a short description in the status label.
+     */
+    private static void onNotification(CanvasNotification notification) {
+        ChangeFeed feed = null;
+        if (notification.type() == CanvasNotification.Type.RESYNC || notification.version() > datasetVersion) {
+            feed = fetchChangesFromBackend(datasetVersion, false);
+        }
+
+        ChangeFeed changes = feed;
+        SwingUtilities.invokeLater(() -> {
+            if (changes != null) {
+                applyChanges(changes);
+                updateCalendar(getCurrentDisplayedYearMonth());
+            }
+            CanvasItem item = notification.item();
+            if (item != null) {
+                String text = notification.type().name().replace('_', ' ').toLowerCase() + ": " + item.name();
+                statusLabel.setText(item.courseName() != null ? text + " (" + item.courseName() + ")" : text);
+            }
+        });
     }
 
     /**
@@ -0,0 +1,199 @@
+package com.example.CalanderCanvas;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.IsoFields;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * CalendarIndex:
+ * Keeps every dated item (assignments, quizzes and calendar events) in per-day buckets with running point
+ * totals, so the calendar views of /calendar/week and /calendar/month are read straight from the buckets
+ * instead of bucketing the whole term for every request.
+ *
+ * Like DeadlineIndex it is a DatedItemIndex, so each sync's added, updated and removed items move between
+ * buckets in place. A bucket keeps its items' keys by time (DatedKeys), and a view decodes the items of its
+ * days from the dataset. Each week and month also remembers the dataset version it last changed at; the
+ * views use it for their ETags, so a browser revalidating an unchanged period gets a 304 without a body.
+ *
+ * Days, weeks and months are in the zone given by canvas.zone (the server's default zone if unset); weeks
+ * are ISO weeks, Monday to Sunday.
+ */
+@Component
+public class CalendarIndex extends DatedItemIndex {
+
+    // Non-empty days.
+    private final TreeMap<LocalDate, Bucket> days = new TreeMap<>();
+
+    // Dataset version each week (keyed by its Monday) and each month last changed at.
+    private final Map<LocalDate, Long> weekVersions = new HashMap<>();
+    private final Map<YearMonth, Long> monthVersions = new HashMap<>();
+
+    public CalendarIndex(CanvasDataset dataset, @Value("${canvas.zone:}") String zone) {
+        super(dataset, zone);
+    }
+
+    /**
+     * Returns the ISO week starting on the given Monday.
+     */
+    public Period week(LocalDate monday) {
+        return period(weekKey(monday), weekKey(monday.minusWeeks(1)), weekKey(monday.plusWeeks(1)),
+                monday, monday.plusDays(6), weekVersions, monday);
+    }
+
+    /**
+     * Returns the given month.
+     */
+    public Period month(YearMonth month) {
+        return period(month.toString(), month.minusMonths(1).toString(), month.plusMonths(1).toString(),
+                month.atDay(1), month.atEndOfMonth(), monthVersions, month);
+    }
+
+    /**
+     * @return The ISO week key ("2026-W42") of the week containing the given day.
+     */
+    public static String weekKey(LocalDate date) {
+        return String.format(Locale.ROOT, "%d-W%02d",
+                date.get(IsoFields.WEEK_BASED_YEAR), date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+    }
+
+    /**
+     * Builds the view of the days from start to end; the period's version is versions[versionKey].
+     */
+    private <K> Period period(String key, String previous, String next, LocalDate start, LocalDate end, Map<K, Long> versions, K versionKey) {
+        return dataset.read(decode -> {
+            lock.readLock().lock();
+            try {
+                // The version is read under the lock so it always matches the days returned with it.
+                Long version = versions.get(versionKey);
+                List<Day> periodDays = new ArrayList<>();
+                int items = 0;
+                double possible = 0;
+                double earned = 0;
+                for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
+                    Bucket bucket = days.get(date);
+                    if (bucket == null) {
+                        periodDays.add(new Day(date, List.of(), 0, 0));
+                        continue;
+                    }
+                    List<CanvasItem> dayItems = new ArrayList<>(bucket.items.size());
+                    for (int i = 0; i < bucket.items.size(); i++) {
+                        CanvasItem item = decode.apply(bucket.items.key(i));
+                        if (item != null) {
+                            dayItems.add(item);
+                        }
+                    }
+                    periodDays.add(new Day(date, dayItems, bucket.pointsPossible, bucket.pointsEarned));
+                    items += dayItems.size();
+                    possible += bucket.pointsPossible;
+                    earned += bucket.pointsEarned;
+                }
+                return new Period(key, previous, next, start, end, version != null ? version : 0, items, possible, earned, periodDays);
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    @Override
+    protected boolean accepts(CanvasItem item) {
+        return true;
+    }
+
+    @Override
+    protected void added(CanvasItem item, long key, LocalDate date, long version) {
+        Bucket bucket = days.computeIfAbsent(date, d -> new Bucket());
+        bucket.items.add(item.dueAt().getEpochSecond(), key);
+        bucket.adjust(item, 1);
+        touch(date, version);
+    }
+
+    @Override
+    protected void removed(CanvasItem item, long key, LocalDate date, long version) {
+        Bucket bucket = days.get(date);
+        bucket.items.remove(item.dueAt().getEpochSecond(), key);
+        bucket.adjust(item, -1);
+        if (bucket.items.size() == 0) {
+            days.remove(date);
+        }
+        touch(date, version);
+    }
+
+    /**
+     * Estimates the memory of the buckets, per day a TreeMap entry (40), a LocalDate (24) and the Bucket (32)
+     * plus its keys, and of the week and month versions, per entry a HashMap node (32), the key (24), a boxed
+     * Long (16) and a table slot (4).
+     */
+    @Override
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 96L * days.size() + 76L * (weekVersions.size() + monthVersions.size());
+            for (Bucket bucket : days.values()) {
+                bytes += bucket.items.estimatedBytes();
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records that the week and month of a day changed at the given version.
+     */
+    private void touch(LocalDate date, long version) {
+        weekVersions.put(weekStart(date), version);
+        monthVersions.put(YearMonth.from(date), version);
+    }
+
+    /**
+     * Item keys (by time) and running totals of one day.
+     */
+    private static final class Bucket {
+        private final DatedKeys items = new DatedKeys();
+        private double pointsPossible;
+        private double pointsEarned;
+
+        private void adjust(CanvasItem item, int sign) {
+            pointsPossible += sign * (item.pointsPossible() != null ? item.pointsPossible() : 0);
+            pointsEarned += sign * (item.pointsEarned() != null ? item.pointsEarned() : 0);
+        }
+    }
+
+    /**
+     * One day of a calendar view.
+     *
+     * @param date           The day.
+     * @param items          Its assignments, quizzes and events, by time.
+     * @param pointsPossible Points possible of the day's items.
+     * @param pointsEarned   Points earned on the day's items so far.
+     */
+    public record Day(LocalDate date, List<CanvasItem> items, double pointsPossible, double pointsEarned) {
+    }
+
+    /**
+     * A week or month of the calendar, with every day in it (empty days included).
+     *
+     * @param key            "2026-W42" or "2026-10".
+     * @param previous       Key of the period before.
+     * @param next           Key of the period after.
+     * @param start          First day.
+     * @param end            Last day.
+     * @param version        Dataset version the period last changed at (0 if it never had items).
+     * @param items          Number of items in the period.
+     * @param pointsPossible Points possible in the period.
+     * @param pointsEarned   Points earned in the period so far.
+     * @param days           The days, in order.
+     */
+    public record Period(String key, String previous, String next, LocalDate start, LocalDate end, long version, int items,
+                         double pointsPossible, double pointsEarned, List<Day> days) {
+    }
+}
@@ -1,38 +1,81 @@
 package com.example.CalanderCanvas;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
 
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
 
 @Service // Marks this class as a Spring service for dependency injection.
 public class CanvasAPIService {
 
-    // Injects the API key from the application properties or environment variables.
-    @Value("${api.key}")
-    private String CanvasAPIkey;
+    // The API key, from the application properties or environment variables.
+    private final String CanvasAPIkey;
 
-    // Injects the Canvas API base URL from the application properties or environment variables.
-    @Value("${canvas.url}")
-    private String canvasApiURL;
+    // The Canvas base URL from the application properties or environment variables, without trailing slashes.
+    private final String canvasApiURL;
 
-    // RestTemplate is used to send HTTP requests.
-    private final RestTemplate restTemplate;
+    // Sends the HTTP requests concurrently on the canvasFetchExecutor (at most canvas.fetch.threads at once),
+    // limited by the current request's deadline and hedged against slow Canvas responses.
+    private final HedgedFetcher fetcher;
 
     // ObjectMapper is used to parse JSON responses into Java objects.
     private final ObjectMapper objectMapper;
 
-    // Constructor to initialize RestTemplate and ObjectMapper via dependency injection.
-    public CanvasAPIService(RestTemplate restTemplate, ObjectMapper objectMapper) {
-        this.restTemplate = restTemplate;
+    // Cache of Canvas responses shared with the other instances; the fetcher reads and fills it.
+    private final CanvasResponseCache cache;
+
+    // Canvas allows at most 10 context codes per calendar_events request, and at most 100 items per page.
+    private static final int CONTEXT_CODES_PER_REQUEST = 10;
+    private static final int PAGE_SIZE = 100;
+
+    // Used by plainText() to strip HTML from descriptions.
+    private static final Pattern HTML_TAG = Pattern.compile("<[^>]*>");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    // Upper bound on the pages followed for one listing, in case Canvas keeps returning next links.
+    private static final int MAX_PAGES = 100;
+
+    // Constructor to initialize the fetcher, ObjectMapper, cache and Canvas settings via dependency injection.
+    public CanvasAPIService(HedgedFetcher fetcher, ObjectMapper objectMapper, CanvasResponseCache cache,
+                            @Value("${api.key}") String canvasAPIkey,
+                            @Value("${canvas.url}") String canvasApiURL) {
+        this.CanvasAPIkey = canvasAPIkey;
+        // The shipped value ends in "/"; paths and page links are compared against the URL without it.
+        this.canvasApiURL = canvasApiURL.trim().replaceAll("/+$", "");
+        this.fetcher = fetcher;
         this.objectMapper = objectMapper;
+        this.cache = cache;
+    }
+
+    /**
+     * Drops the cached Canvas responses of this user on every instance, so the next crawl reads Canvas itself.
+     */
+    public void invalidateCache() {
+        cache.invalidate(CanvasAPIkey);
     }
 
     /**
@@ -42,12 +85,12 @@ public class CanvasAPIService {
      */
     public JsonNode getCourses() {
         // Builds the URL for fetching courses using the Canvas API.
-        String url = UriComponentsBuilder.fromHttpUrl(canvasApiURL + "/api/v1/courses?enrollment_type=student")
-            .queryParam("access_token", CanvasAPIkey) // Adds the API key as a query parameter.
+        String url = apiUrl("/courses") // Adds the API key as a query parameter.
+            .queryParam("enrollment_type", "student")
             .toUriString();
 
         // Sends a GET request to the Canvas API to retrieve the list of courses.
-        String response = restTemplate.getForObject(url, String.class);
+        String response = fetchBody(url);
 
         try {
             // Parses the JSON response into a JsonNode object.
@@ -63,24 +106,14 @@ public class CanvasAPIService {
      *
      * @return A list of strings describing grades for each assignment.
      */
-public List<String> getGrades() {
-    // Fetches the list of courses using the getCourses method.
-    JsonNode courses = getCourses();
-    List<String> grades = new ArrayList<>(); // Stores grade details for assignments and quizzes.
-
-    // Ensures that the response is an array before iterating.
-    if (courses.isArray()) {
-        for (JsonNode course : courses) {
-            // Extracts the course ID from the JSON response.
-            String courseId = course.path("id").asText();
-            
-            // Fetch assignment and quiz grades for the current course using helper functions
-            fetchAssignments(courseId, grades);
-            fetchQuizzes(courseId, grades);
+    public List<String> getGrades() {
+        // Crawls assignments and quizzes for every course concurrently, then flattens them in course order.
+        List<String> grades = new ArrayList<>();
+        for (CourseCrawl crawl : crawlCourses(getCourses(), true)) {
+            grades.addAll(crawl.entries);
         }
+        return grades; // Returns the list of grades.
     }
-    return grades; // Returns the list of grades.
-}
 
     /**
      * Retrieves all active calendar events across all courses.
@@ -89,176 +122,703 @@ public List<String> getGrades() {
      * @return A list of strings describing active calendar events.
      */
     public List<String> getActiveCalendarEvents() {
-        // Builds the URL to fetch all calendar events from the Canvas API.
-        String url = UriComponentsBuilder.fromHttpUrl(canvasApiURL + "/api/v1/calendar_events")
-                .queryParam("access_token", CanvasAPIkey) // Adds the API key as a query parameter.
+        return getActiveCalendarEvents(null, null);
+    }
+
+    /**
+     * Retrieves the active calendar events of the user and all of their courses, optionally within a date range.
+     * The context codes are batched into as few paged requests as Canvas allows (see fetchCalendarEvents).
+     *
+     * @param startDate First day to include, or null for no lower bound.
+     * @param endDate   Last day to include, or null for no upper bound. With neither date set every event is returned.
+     * @return A list of strings describing active calendar events, ordered by start time.
+     */
+    public List<String> getActiveCalendarEvents(LocalDate startDate, LocalDate endDate) {
+        // The user lookup runs while the courses are fetched; both are needed for the context codes.
+        CompletableFuture<JsonNode> self = fetchAsync(apiUrl("/users/self").toUriString());
+        List<String> contextCodes = contextCodes(getCourses(), self);
+
+        // List to store details of active events.
+        List<String> activeEvents = new ArrayList<>();
+        for (JsonNode eventNode : await(fetchCalendarEvents(contextCodes, startDate, endDate))) {
+            // Checks if the event is not a blackout date.
+            boolean blackoutDate = eventNode.path("blackout_date").asBoolean(false);
+            if (!blackoutDate) {
+                // Extracts event details.
+                String title = eventNode.path("title").asText("No Title"); // Event title.
+                String description = eventNode.path("description").asText("No Description"); // Event description.
+
+                // Adds the event details to the list.
+                activeEvents.add("Event: " + title + " | Description: " + description);
+            }
+        }
+        return activeEvents; // Returns the list of active events.
+    }
+
+    /**
+     * Fetches the user's planner items between two dates from /api/v1/planner/items: assignments, quizzes and
+     * calendar events of every course (plus personal events) in a single paged stream, instead of a listing
+     * and submission lookup per course.
+     * Planner items carry no scores, so pointsEarned is always null. Other plannable types (discussions, pages,
+     * planner notes) have no CanvasItem type and are left out.
+     *
+     * @param startDate First day to include.
+     * @param endDate   Last day to include.
+     * @return The planner items as typed items, in Canvas's (date) order.
+     */
+    public List<CanvasItem> getPlannerItems(LocalDate startDate, LocalDate endDate) {
+        String url = apiUrl("/planner/items")
+                .queryParam("start_date", startDate)
+                .queryParam("end_date", endDate)
+                .queryParam("per_page", PAGE_SIZE)
                 .toUriString();
 
+        List<CanvasItem> items = new ArrayList<>();
+        for (JsonNode node : await(fetchPages(url))) {
+            CanvasItem item = toPlannerItem(node);
+            if (item != null) {
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Fetches every course's assignment groups, with their assignments and the user's submissions, and builds
+     * a grade book per course. This is one paged request per course
+     * (/courses/{id}/assignment_groups?include[]=assignments&include[]=submission) instead of a listing plus
+     * a submission lookup per assignment. Quizzes are assignments in Canvas and are included.
+     * A course whose groups cannot be fetched is logged, left out and reported as incomplete.
+     *
+     * @return The grade books, and the courses that are missing from them.
+     */
+    public GradeBookFetch getGradeBooks() {
+        JsonNode courses = getCourses();
+        List<JsonNode> courseNodes = new ArrayList<>();
+        List<CompletableFuture<List<JsonNode>>> listings = new ArrayList<>();
+        if (courses.isArray()) {
+            for (JsonNode course : courses) {
+                courseNodes.add(course);
+                listings.add(fetchPages(apiUrl("/courses/" + course.path("id").asText() + "/assignment_groups")
+                        .queryParam("include[]", "assignments", "submission")
+                        .queryParam("per_page", PAGE_SIZE)
+                        .toUriString()));
+            }
+        }
+
+        List<String> courseIds = new ArrayList<>();
+        List<GradeBook> books = new ArrayList<>();
+        Set<String> incompleteCourses = new HashSet<>();
+        for (int i = 0; i < courseNodes.size(); i++) {
+            JsonNode course = courseNodes.get(i);
+            String courseId = course.path("id").asText();
+            courseIds.add(courseId);
+            List<JsonNode> groups;
+            try {
+                groups = listings.get(i).join();
+            } catch (Exception e) {
+                System.err.println("Failed to fetch assignment groups for course ID: " + courseId);
+                incompleteCourses.add(courseId);
+                continue;
+            }
+            List<GradeBook.GroupDefinition> definitions = new ArrayList<>();
+            for (JsonNode group : groups) {
+                definitions.add(toGroupDefinition(group));
+            }
+            books.add(new GradeBook(courseId, course.path("name").asText("Unknown Course"),
+                    course.path("apply_assignment_group_weights").asBoolean(false), definitions));
+        }
+        return new GradeBookFetch(courseIds, books, incompleteCourses);
+    }
+
+    /**
+     * Result of {@link #getGradeBooks()}.
+     *
+     * @param courseIds         Every course, in course order.
+     * @param books             One grade book per course whose assignment groups were fetched, in course order.
+     * @param incompleteCourses Courses whose assignment groups could not be fetched.
+     */
+    public record GradeBookFetch(List<String> courseIds, List<GradeBook> books, Set<String> incompleteCourses) {
+    }
+
+    /**
+     * Retrieves grades split by each course, including both assignments and quizzes.
+     *
+     * @return A Map where the key is the course title, and the value is a list of assignments, quizzes, and their grades.
+     */
+    public Map<String, List<String>> getCourseGrades() {
+        Map<String, List<String>> courseGrades = new HashMap<>(); // Stores grades per course.
+        for (CourseCrawl crawl : crawlCourses(getCourses(), true)) {
+            courseGrades.put(crawl.courseTitle, crawl.entries);
+        }
+        return courseGrades; // Returns the map of grades split by course.
+    }
+
+    /**
+     * New method to fetch all assignments (without grade info) from all courses.
+     * Returns a list of strings in the format:
+     * "Assignment: {name}, Due Date: {YYYY-MM-DDTHH:MM:SSZ}"
+     */
+    public List<String> getAllCourseAssignments() {
+        List<String> allAssignments = new ArrayList<>();
+        for (CourseCrawl crawl : crawlCourses(getCourses(), false)) {
+            allAssignments.addAll(crawl.entries);
+        }
+        return allAssignments;
+    }
+
+    /**
+     * Fetches every assignment and quiz across all courses, plus active calendar events, as typed items.
+     *
+     * @return A list of typed items in course and listing order, followed by the calendar events.
+     */
+    public List<CanvasItem> getCourseItems() {
+        return crawlItems().items();
+    }
+
+    /**
+     * Crawls every assignment, quiz and active calendar event as typed items, and reports which parts of the
+     * crawl could not be completed. The sync uses the incomplete scopes so that a course (or the calendar)
+     * whose requests failed is not mistaken for one whose items were deleted.
+     *
+     * @return The crawled items together with the sync scopes whose crawl was incomplete.
+     */
+    public ItemCrawl crawlItems() {
+        CompletableFuture<JsonNode> self = fetchAsync(apiUrl("/users/self").toUriString());
+        JsonNode courses = getCourses();
+
+        // The calendar requests run while the courses are crawled. Without the user's context code the
+        // personal events are missing, so the calendar counts as incomplete.
+        List<String> contextCodes = contextCodes(courses, self);
+        boolean eventsComplete = !self.isCompletedExceptionally();
+        CompletableFuture<List<JsonNode>> events = fetchCalendarEvents(contextCodes, null, null);
+
+        List<CanvasItem> items = new ArrayList<>();
+        Set<String> incompleteScopes = new HashSet<>();
+        Map<String, String> courseNames = new HashMap<>();
+        for (CourseCrawl crawl : crawlCourses(courses, true)) {
+            items.addAll(crawl.items);
+            courseNames.put(crawl.courseId, crawl.courseTitle);
+            if (!crawl.complete) {
+                incompleteScopes.add(crawl.courseId);
+            }
+        }
+
         try {
-            // Sends a GET request to retrieve calendar events.
-            String response = restTemplate.getForObject(url, String.class);
-
-            // Parses the JSON response into a JsonNode.
-            JsonNode rootNode = objectMapper.readTree(response);
-
-            // List to store details of active events.
-            List<String> activeEvents = new ArrayList<>();
-
-            // Iterates over each calendar event in the response array.
-            if (rootNode.isArray()) {
-                for (JsonNode eventNode : rootNode) {
-                    // Checks if the event is not a blackout date.
-                    boolean blackoutDate = eventNode.path("blackout_date").asBoolean(false);
-                    if (!blackoutDate) {
-                        // Extracts event details.
-                        String title = eventNode.path("title").asText("No Title"); // Event title.
-                        String description = eventNode.path("description").asText("No Description"); // Event description.
-
-                        // Adds the event details to the list.
-                        activeEvents.add("Event: " + title + " | Description: " + description);
-                    }
+            for (JsonNode eventNode : events.join()) {
+                if (!eventNode.path("blackout_date").asBoolean(false)) {
+                    items.add(toEventItem(eventNode, courseNames));
                 }
             }
-            return activeEvents; // Returns the list of active events.
         } catch (Exception e) {
-            // Throws a runtime exception if an error occurs while fetching or parsing events.
-            throw new RuntimeException("Error fetching active calendar events", e);
+            System.err.println("Failed to fetch calendar events");
+            eventsComplete = false;
+        }
+        if (!eventsComplete) {
+            incompleteScopes.add(CanvasItem.EVENTS_SCOPE);
         }
+        return new ItemCrawl(items, incompleteScopes);
+    }
+
+    /**
+     * Result of {@link #crawlItems()}.
+     *
+     * @param items            Every item that was crawled.
+     * @param incompleteScopes Sync scopes (see {@link CanvasItem#syncScope()}) for which a request failed.
+     */
+    public record ItemCrawl(List<CanvasItem> items, Set<String> incompleteScopes) {
     }
 
-        /**
-     * Retrieves grades split by each course.
+    /**
+     * Crawls the given courses with concurrent upstream calls.
+     *
+     * The crawl is flat: the calling thread first submits every course's assignment (and quiz) listing,
+     * then every submission lookup, and then waits for the courses to be built. A course is built by the
+     * completion callback of its last submission lookup (or by the calling thread, if they have all finished
+     * by then). Only the calling thread waits; fetch tasks never wait on or submit other tasks, and completion
+     * callbacks (a course build, a paged listing requesting its next page) run off the fetch pool (see
+     * HedgedFetcher), so the bounded fetch pool cannot deadlock. If the request deadline passes, the calls
+     * still outstanding fail and the affected courses are reported incomplete rather than holding up the
+     * whole crawl.
      *
-     * @return A Map where the key is the course title, and the value is a list of assignments and their grades.
-     */
-/**
- * Retrieves grades split by each course, including both assignments and quizzes.
- *
- * @return A Map where the key is the course title, and the value is a list of assignments, quizzes, and their grades.
- */
-public Map<String, List<String>> getCourseGrades() {
-    JsonNode courses = getCourses(); // Fetch the list of courses.
-    Map<String, List<String>> courseGrades = new HashMap<>(); // Stores grades per course.
-
-    if (courses.isArray()) {
+     * @param courses        The courses array returned by {@link #getCourses()}.
+     * @param includeQuizzes Whether quizzes should be crawled alongside assignments.
+     * @return One crawl result per course, in the same order as the courses array.
+     */
+    private List<CourseCrawl> crawlCourses(JsonNode courses, boolean includeQuizzes) {
+        List<CourseCrawl> crawls = new ArrayList<>();
+        if (!courses.isArray()) {
+            return crawls;
+        }
+
+        // Stage 1: request every course's listings at once.
+        String trace = CanvasEvents.currentTrace();
         for (JsonNode course : courses) {
-            // Extract course details.
             String courseId = course.path("id").asText();
-            String courseTitle = course.path("name").asText("Unknown Course");
+            CourseCrawl crawl = new CourseCrawl(courseId, course.path("name").asText("Unknown Course"));
+            crawl.event.begin();
+            crawl.assignments = fetchAsync(courseUrl(courseId, "/assignments"));
+            if (includeQuizzes) {
+                crawl.quizzes = fetchAsync(courseUrl(courseId, "/quizzes"));
+            }
+            crawls.add(crawl);
+        }
 
-            // Initialize a list to hold assignment and quiz grades for this course.
-            List<String> gradesList = new ArrayList<>();
+        // Stage 2: request every submission for those listings at once. Each course is built as soon as its own
+        // submissions are in, by the callback of the last one, so its CourseCrawl event ends with that course
+        // rather than after the courses listed before it.
+        for (CourseCrawl crawl : crawls) {
+            crawl.pending.addAll(listItems(crawl, crawl.assignments, CanvasItem.Type.ASSIGNMENT));
+            if (includeQuizzes) {
+                crawl.pending.addAll(listItems(crawl, crawl.quizzes, CanvasItem.Type.QUIZ));
+            }
+            CompletableFuture<?>[] submissions = crawl.pending.stream().map(item -> item.submission).toArray(CompletableFuture<?>[]::new);
+            crawl.built = CompletableFuture.allOf(submissions).handle((done, e) -> {
+                build(crawl, trace);
+                return crawl;
+            });
+        }
 
-            // Fetch assignments data for this course.
-            fetchAssignments(courseId, gradesList);
+        // Stage 3: wait for every course to be built.
+        for (CourseCrawl crawl : crawls) {
+            crawl.built.join();
+        }
+        return crawls;
+    }
 
-            // Fetch quizzes data for this course.
-            fetchQuizzes(courseId, gradesList);
+    /**
+     * Builds a course's entries and items, in listing order, once every submission lookup has finished
+     * (a failed one leaves the score out and marks the course incomplete), and ends its CourseCrawl event.
+     */
+    private void build(CourseCrawl crawl, String trace) {
+        List<JsonNode> scores = new ArrayList<>(crawl.pending.size());
+        for (PendingItem item : crawl.pending) {
+            try {
+                scores.add(item.submission.join().path("score"));
+            } catch (Exception e) {
+                scores.add(MissingNode.getInstance());
+                crawl.complete = false;
+            }
+        }
 
-            // Add this course's grades (assignments and quizzes) to the courseGrades map.
-            courseGrades.put(courseTitle, gradesList);
+        // Building is timed apart from waiting, so JFR shows string building separately from Canvas latency.
+        CanvasEvents.BuildEvent build = new CanvasEvents.BuildEvent();
+        build.begin();
+        for (int i = 0; i < crawl.pending.size(); i++) {
+            crawl.entries.add(formatEntry(crawl.pending.get(i), scores.get(i)));
+            crawl.items.add(toItem(crawl, crawl.pending.get(i), scores.get(i)));
         }
+        build.courseId = crawl.courseId;
+        build.items = crawl.items.size();
+        build.trace = trace;
+        build.commit();
+
+        crawl.event.courseId = crawl.courseId;
+        crawl.event.items = crawl.items.size();
+        crawl.event.complete = crawl.complete;
+        crawl.event.trace = trace;
+        crawl.event.commit();
     }
-    return courseGrades; // Returns the map of grades split by course.
-}
+
     /**
-     * New method to fetch all assignments (without grade info) from all courses.
-     * Returns a list of strings in the format:
-     * "Assignment: {name}, Due Date: {YYYY-MM-DDTHH:MM:SSZ}"
+     * Waits for a course listing and submits a submission lookup for each item in it.
+     * A failed listing is logged and contributes no items, as before.
      */
-    public List<String> getAllCourseAssignments() {
-        JsonNode courses = getCourses();
-        List<String> allAssignments = new ArrayList<>();
+    private List<PendingItem> listItems(CourseCrawl crawl, CompletableFuture<JsonNode> listing, CanvasItem.Type type) {
+        String kind = type == CanvasItem.Type.QUIZ ? "quizzes" : "assignments";
+        List<PendingItem> items = new ArrayList<>();
+        JsonNode listed;
+        try {
+            listed = listing.join();
+        } catch (Exception e) {
+            System.err.println("Failed to fetch " + kind + " for course ID: " + crawl.courseId);
+            crawl.complete = false;
+            return items;
+        }
 
+        if (listed.isArray()) {
+            for (JsonNode node : listed) {
+                PendingItem item = new PendingItem();
+                item.type = type;
+                item.node = node;
+                item.submission = fetchAsync(courseUrl(crawl.courseId, "/" + kind + "/" + node.path("id").asText() + "/submissions/self"));
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Formats an assignment or quiz the way the string endpoints always have:
+     * "Assignment: NAME, Due Date: DATE, Points Earned: PE, Total Points: TP".
+     */
+    private String formatEntry(PendingItem item, JsonNode score) {
+        boolean quiz = item.type == CanvasItem.Type.QUIZ;
+        String name = quiz ? item.node.path("title").asText("No Title") : item.node.path("name").asText("No Name");
+        return (quiz ? "Quiz: " : "Assignment: ") + name
+                + ", Due Date: " + item.node.path("due_at").asText("No Due Date")
+                + ", Points Earned: " + score.asText("Not Available")
+                + ", Total Points: " + item.node.path("points_possible").asText("0");
+    }
+
+    /**
+     * Converts an assignment or quiz listing entry and its submission score into a typed item.
+     */
+    private CanvasItem toItem(CourseCrawl crawl, PendingItem item, JsonNode score) {
+        boolean quiz = item.type == CanvasItem.Type.QUIZ;
+        JsonNode node = item.node;
+        return new CanvasItem(
+                (quiz ? "quiz:" : "assignment:") + node.path("id").asText(),
+                item.type,
+                crawl.courseId,
+                crawl.courseTitle,
+                quiz ? node.path("title").asText("No Title") : node.path("name").asText("No Name"),
+                parseInstant(node.path("due_at")),
+                node.path("points_possible").isNumber() ? node.path("points_possible").asDouble() : null,
+                score.isNumber() ? score.asDouble() : null,
+                plainText(node.path("description")));
+    }
+
+    /**
+     * Converts an assignment group (with its assignments and submissions) into a grade book group.
+     * Excused assignments, ungraded ("not_graded") ones and ones omitted from the final grade do not count
+     * toward the grade and are left out.
+     */
+    private static GradeBook.GroupDefinition toGroupDefinition(JsonNode group) {
+        JsonNode rules = group.path("rules");
+        Set<String> neverDrop = new HashSet<>();
+        for (JsonNode id : rules.path("never_drop")) {
+            neverDrop.add("assignment:" + id.asText());
+        }
+
+        List<GradeBook.AssignmentScore> assignments = new ArrayList<>();
+        for (JsonNode assignment : group.path("assignments")) {
+            JsonNode submission = assignment.path("submission");
+            if (assignment.path("omit_from_final_grade").asBoolean(false)
+                    || "not_graded".equals(assignment.path("grading_type").asText())
+                    || submission.path("excused").asBoolean(false)) {
+                continue;
+            }
+            JsonNode score = submission.path("score");
+            assignments.add(new GradeBook.AssignmentScore(
+                    "assignment:" + assignment.path("id").asText(),
+                    assignment.path("name").asText("No Name"),
+                    assignment.path("points_possible").asDouble(0),
+                    score.isNumber() ? score.asDouble() : null));
+        }
+        return new GradeBook.GroupDefinition(
+                group.path("id").asText(),
+                group.path("name").asText("No Name"),
+                group.path("group_weight").asDouble(0),
+                rules.path("drop_lowest").asInt(0),
+                rules.path("drop_highest").asInt(0),
+                neverDrop,
+                assignments);
+    }
+
+    /**
+     * Converts a calendar event into a typed item. Course events carry a "course_{id}" context code,
+     * which is used to attach the course; other events (e.g. personal ones) have no course.
+     */
+    private static CanvasItem toEventItem(JsonNode eventNode, Map<String, String> courseNames) {
+        String contextCode = eventNode.path("context_code").asText("");
+        String courseId = contextCode.startsWith("course_") ? contextCode.substring("course_".length()) : null;
+        return new CanvasItem(
+                "event:" + eventNode.path("id").asText(),
+                CanvasItem.Type.EVENT,
+                courseId,
+                courseId != null ? courseNames.get(courseId) : null,
+                eventNode.path("title").asText("No Title"),
+                parseInstant(eventNode.path("start_at")),
+                null,
+                null,
+                plainText(eventNode.path("description")));
+    }
+
+    /**
+     * Parses an ISO-8601 timestamp field, returning null when it is missing or malformed.
+     */
+    private static Instant parseInstant(JsonNode field) {
+        if (!field.isTextual()) {
+            return null;
+        }
+        try {
+            return Instant.parse(field.asText());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Turns a Canvas HTML description into plain text: tags are removed, the common entities decoded and
+     * whitespace collapsed. Returns null when the field is missing or has no text.
+     */
+    private static String plainText(JsonNode field) {
+        if (!field.isTextual()) {
+            return null;
+        }
+        String text = HTML_TAG.matcher(field.asText()).replaceAll(" ")
+                .replace("&nbsp;", " ")
+                .replace("&lt;", "<")
+                .replace("&gt;", ">")
+                .replace("&quot;", "\"")
+                .replace("&#39;", "'")
+                .replace("&amp;", "&");
+        text = WHITESPACE.matcher(text).replaceAll(" ").trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    /**
+     * Converts a planner item into a typed item, or returns null for plannable types CanvasItem cannot represent.
+     * Ids use the same "assignment:"/"quiz:"/"event:" form as the course crawl, so both describe the same items.
+     */
+    private static CanvasItem toPlannerItem(JsonNode node) {
+        CanvasItem.Type type = switch (node.path("plannable_type").asText()) {
+            case "assignment" -> CanvasItem.Type.ASSIGNMENT;
+            case "quiz" -> CanvasItem.Type.QUIZ;
+            case "calendar_event" -> CanvasItem.Type.EVENT;
+            default -> null;
+        };
+        if (type == null) {
+            return null;
+        }
+
+        JsonNode plannable = node.path("plannable");
+        String courseId = node.path("course_id").isValueNode() ? node.path("course_id").asText() : null;
+        return new CanvasItem(
+                type.name().toLowerCase(Locale.ROOT) + ":" + node.path("plannable_id").asText(),
+                type,
+                courseId,
+                courseId != null ? node.path("context_name").asText(null) : null,
+                plannable.path("title").asText("No Title"),
+                parseInstant(node.path("plannable_date")),
+                plannable.path("points_possible").isNumber() ? plannable.path("points_possible").asDouble() : null,
+                null,
+                plainText(plannable.path("description")));
+    }
+
+    /**
+     * Collects the calendar context codes: the user's own ("user_{id}", for personal events) followed by one
+     * "course_{id}" per course. If the user lookup failed, only the course codes are returned.
+     */
+    private static List<String> contextCodes(JsonNode courses, CompletableFuture<JsonNode> self) {
+        List<String> codes = new ArrayList<>();
+        try {
+            codes.add("user_" + self.join().path("id").asText());
+        } catch (Exception e) {
+            System.err.println("Failed to fetch the current user; personal calendar events are left out");
+        }
         if (courses.isArray()) {
             for (JsonNode course : courses) {
-                String courseId = course.path("id").asText();
-                fetchAssignments(courseId, allAssignments);
+                codes.add("course_" + course.path("id").asText());
             }
         }
-        return allAssignments;
+        return codes;
     }
 
- 
-/**
- * Fetch assignments for a specific course and add their grades to the list.
- */
-private void fetchAssignments(String courseId, List<String> gradesList) {
-    String assignmentsUrl = UriComponentsBuilder.fromHttpUrl(canvasApiURL + "/api/v1/courses/" + courseId + "/assignments")
-        .queryParam("access_token", CanvasAPIkey)
-        .toUriString();
-
-    try {
-        String response = restTemplate.getForObject(assignmentsUrl, String.class);
-        JsonNode assignments = objectMapper.readTree(response);
-
-        if (assignments.isArray()) {
-            for (JsonNode assignment : assignments) {
-                String name = assignment.path("name").asText("No Name");
-                String pointsPossible = assignment.path("points_possible").asText("0");
-                String assignmentId = assignment.path("id").asText();
-                String dueDate = assignment.path("due_at").asText("No Due Date");
-
-                // Fetch submission for assignment
-                String submissionUrl = UriComponentsBuilder.fromHttpUrl(canvasApiURL + "/api/v1/courses/" + courseId + "/assignments/" + assignmentId + "/submissions/self")
-                    .queryParam("access_token", CanvasAPIkey)
-                    .toUriString();
-
-                try {
-                    String submissionResponse = restTemplate.getForObject(submissionUrl, String.class);
-                    JsonNode submission = objectMapper.readTree(submissionResponse);
-                    String pointsEarned = submission.path("score").asText("Not Available");
-
-                    // Add assignment grade and due date to the list
-                    gradesList.add("Assignment: " + name + ", Due Date: " + dueDate + ", Points Earned: " + pointsEarned + ", Total Points: " + pointsPossible);
-                } catch (Exception e) {
-                    gradesList.add("Assignment: " + name + ", Due Date: " + dueDate + ", Points Earned: Not Available, Total Points: " + pointsPossible);
-                }
+    /**
+     * Fetches the calendar events (blackout dates included) of the given contexts.
+     * Canvas accepts at most CONTEXT_CODES_PER_REQUEST context codes per request, so the codes are split into
+     * as few batches as that allows; the batches are requested concurrently and each one's pages are followed
+     * in turn. With neither date set, all_events asks Canvas for every event instead of just today's.
+     *
+     * @return A future of the events of all batches, ordered by start time.
+     */
+    private CompletableFuture<List<JsonNode>> fetchCalendarEvents(List<String> contextCodes, LocalDate startDate, LocalDate endDate) {
+        List<CompletableFuture<List<JsonNode>>> batches = new ArrayList<>();
+        for (int i = 0; i < contextCodes.size(); i += CONTEXT_CODES_PER_REQUEST) {
+            UriComponentsBuilder url = apiUrl("/calendar_events")
+                    .queryParam("type", "event")
+                    .queryParam("per_page", PAGE_SIZE)
+                    .queryParam("context_codes[]", contextCodes.subList(i, Math.min(i + CONTEXT_CODES_PER_REQUEST, contextCodes.size())).toArray());
+            if (startDate == null && endDate == null) {
+                url.queryParam("all_events", true);
+            }
+            if (startDate != null) {
+                url.queryParam("start_date", startDate);
+            }
+            if (endDate != null) {
+                url.queryParam("end_date", endDate);
             }
+            batches.add(fetchPages(url.toUriString()));
         }
-    } catch (Exception e) {
-        System.err.println("Failed to fetch assignments for course ID: " + courseId);
+
+        return CompletableFuture.allOf(batches.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            List<JsonNode> events = new ArrayList<>();
+            for (CompletableFuture<List<JsonNode>> batch : batches) {
+                events.addAll(batch.join());
+            }
+            events.sort(Comparator.comparing(event -> parseInstant(event.path("start_at")), Comparator.nullsLast(Comparator.naturalOrder())));
+            return events;
+        });
     }
-}
 
-/**
- * Fetch quizzes for a specific course and add their grades to the list.
- */
-private void fetchQuizzes(String courseId, List<String> gradesList) {
-    String quizzesUrl = UriComponentsBuilder.fromHttpUrl(canvasApiURL + "/api/v1/courses/" + courseId + "/quizzes")
-        .queryParam("access_token", CanvasAPIkey)
-        .toUriString();
-
-    try {
-        String response = restTemplate.getForObject(quizzesUrl, String.class);
-        JsonNode quizzes = objectMapper.readTree(response);
-
-        if (quizzes.isArray()) {
-            for (JsonNode quiz : quizzes) {
-                String title = quiz.path("title").asText("No Title");
-                String pointsPossible = quiz.path("points_possible").asText("0");
-                String quizId = quiz.path("id").asText();
-                String dueDate = quiz.path("due_at").asText("No Due Date");
-
-                // Fetch submission for quiz
-                String submissionUrl = UriComponentsBuilder.fromHttpUrl(canvasApiURL + "/api/v1/courses/" + courseId + "/quizzes/" + quizId + "/submissions/self")
-                    .queryParam("access_token", CanvasAPIkey)
-                    .toUriString();
-
-                try {
-                    String submissionResponse = restTemplate.getForObject(submissionUrl, String.class);
-                    JsonNode submission = objectMapper.readTree(submissionResponse);
-                    String pointsEarned = submission.path("score").asText("Not Available");
-
-                    // Add quiz grade and due date to the list
-                    gradesList.add("Quiz: " + title + ", Due Date: " + dueDate + ", Points Earned: " + pointsEarned + ", Total Points: " + pointsPossible);
-                } catch (Exception e) {
-                    gradesList.add("Quiz: " + title + ", Due Date: " + dueDate + ", Points Earned: Not Available, Total Points: " + pointsPossible);
-                }
+    /**
+     * Fetches every page of a Canvas listing by following the rel="next" links of the Link header.
+     * Pages are requested one after another from completion callbacks, so no thread waits between them: the
+     * callback runs on the common pool and only queues the next page's fetch task. The current request's deadline
+     * and trace are captured here and apply to every page.
+     *
+     * @return A future of the elements of all pages, in order.
+     */
+    private CompletableFuture<List<JsonNode>> fetchPages(String url) {
+        return fetchPages(url, RequestDeadline.current(), CanvasEvents.currentTrace(), new ArrayList<>(), 1);
+    }
+
+    private CompletableFuture<List<JsonNode>> fetchPages(String url, RequestDeadline deadline, String trace,
+                                                         List<JsonNode> elements, int page) {
+        return fetcher.getEntity(url, deadline, trace).thenCompose(response -> {
+            JsonNode body = parse(response.getBody(), trace);
+            if (body.isArray()) {
+                body.forEach(elements::add);
             }
+
+            String next = nextPageUrl(response.getHeaders());
+            if (next == null) {
+                return CompletableFuture.completedFuture(elements);
+            }
+            if (page >= MAX_PAGES) {
+                throw new IllegalStateException("Canvas listing has more than " + MAX_PAGES + " pages");
+            }
+            return fetchPages(next, deadline, trace, elements, page + 1);
+        });
+    }
+
+    /**
+     * Returns the rel="next" URL of a Canvas Link header, or null on the last page.
+     * Canvas leaves the access token out of these links, so it is added back; a link to any other scheme, host
+     * or port than canvas.url is refused so the token is never sent outside Canvas.
+     */
+    String nextPageUrl(HttpHeaders headers) {
+        String link = headers.getFirst(HttpHeaders.LINK);
+        if (link == null) {
+            return null;
         }
-    } catch (Exception e) {
-        System.err.println("Failed to fetch quizzes for course ID: " + courseId);
+        for (String part : link.split(",")) {
+            int open = part.indexOf('<');
+            int close = part.indexOf('>');
+            if (open < 0 || close < open || !part.substring(close).contains("rel=\"next\"")) {
+                continue;
+            }
+            String next = part.substring(open + 1, close).trim();
+            if (!sameOrigin(URI.create(next), URI.create(canvasApiURL))) {
+                throw new IllegalStateException("Canvas page link points outside " + canvasApiURL);
+            }
+            if (!next.contains("access_token=")) {
+                next += (next.contains("?") ? "&" : "?") + "access_token=" + UriUtils.encode(CanvasAPIkey, StandardCharsets.UTF_8);
+            }
+            return next;
+        }
+        return null;
+    }
+
+    /**
+     * @return true if both URIs have the same scheme, host and port (a missing port counts as the default one).
+     */
+    private static boolean sameOrigin(URI a, URI b) {
+        return a.getScheme() != null && a.getScheme().equalsIgnoreCase(b.getScheme())
+                && a.getHost() != null && a.getHost().equalsIgnoreCase(b.getHost())
+                && port(a) == port(b);
+    }
+
+    private static int port(URI uri) {
+        if (uri.getPort() >= 0) {
+            return uri.getPort();
+        }
+        return "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+    }
+
+    /**
+     * Builds an authenticated URL for a path below /api/v1. The access token is a URI variable, so
+     * toUriString() encodes every reserved character in it (a "+" would otherwise reach Canvas as a space).
+     */
+    private UriComponentsBuilder apiUrl(String path) {
+        return UriComponentsBuilder.fromHttpUrl(canvasApiURL + "/api/v1" + path)
+            .queryParam("access_token", "{access_token}")
+            .uriVariables(Map.of("access_token", CanvasAPIkey));
+    }
+
+    /**
+     * Builds an authenticated URL for a path below /api/v1/courses/{courseId}.
+     */
+    private String courseUrl(String courseId, String path) {
+        return apiUrl("/courses/" + courseId + path).toUriString();
+    }
+
+    /**
+     * Sends a GET request to the Canvas API and parses the body as JSON once it arrives.
+     */
+    private CompletableFuture<JsonNode> fetchAsync(String url) {
+        String trace = CanvasEvents.currentTrace();
+        return fetcher.get(url).thenApply(body -> parse(body, trace));
+    }
+
+    /**
+     * Parses a Canvas response body as JSON, recording a canvas.Parse event under the given trace.
+     */
+    private JsonNode parse(String response, String trace) {
+        CanvasEvents.ParseEvent event = new CanvasEvents.ParseEvent();
+        event.begin();
+        try {
+            return objectMapper.readTree(response);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to parse Canvas JSON response", e);
+        } finally {
+            event.chars = response != null ? response.length() : 0;
+            event.trace = trace;
+            event.commit();
+        }
+    }
+
+    /**
+     * Sends a GET request to the Canvas API and waits for the body.
+     * If the request deadline passes first, the caller gets a 504 Gateway Timeout instead of waiting on.
+     */
+    private String fetchBody(String url) {
+        return await(fetcher.get(url));
+    }
+
+    /**
+     * Waits for a pending Canvas result, turning a passed request deadline into a 504 Gateway Timeout.
+     */
+    private static <T> T await(CompletableFuture<T> pending) {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                throw new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "Canvas did not answer within the request deadline");
+            }
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    /**
+     * Per-course state carried between the stages of {@link #crawlCourses(JsonNode, boolean)}.
+     */
+    private static class CourseCrawl {
+        private final String courseId;
+        private final String courseTitle;
+        private CompletableFuture<JsonNode> assignments;
+        private CompletableFuture<JsonNode> quizzes;
+        private CompletableFuture<CourseCrawl> built;
+        private final List<PendingItem> pending = new ArrayList<>();
+        private final List<String> entries = new ArrayList<>();
+        private final List<CanvasItem> items = new ArrayList<>();
+        private boolean complete = true;
+        private final CanvasEvents.CourseCrawlEvent event = new CanvasEvents.CourseCrawlEvent();
+
+        private CourseCrawl(String courseId, String courseTitle) {
+            this.courseId = courseId;
+            this.courseTitle = courseTitle;
+        }
+    }
+
+    /**
+     * An assignment or quiz whose submission lookup is still in flight.
+     */
+    private static class PendingItem {
+        private CanvasItem.Type type;
+        private JsonNode node;
+        private CompletableFuture<JsonNode> submission;
     }
 }
-}
\ No newline at end of file
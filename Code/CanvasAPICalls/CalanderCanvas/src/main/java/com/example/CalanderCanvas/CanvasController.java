@@ -1,10 +1,33 @@
 package com.example.CalanderCanvas;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.util.WebUtils;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
 
@@ -20,28 +43,110 @@ import java.util.Map;
  * - /health-check: Returns a simple "Situation Normal" string to confirm the service is running.
  * - /courses: Returns a JSON representation of all courses the user is enrolled in.
  * - /grades: Returns a list of strings describing grades for all assignments and quizzes across courses.
- * - /active-events: Returns a list of active calendar events (non-blackout dates).
+ * - /active-events: Returns a list of active calendar events (non-blackout dates) of the user and all courses.
  * - /course-grades: Returns a map of course titles to a list of graded items (assignments/quizzes).
+ * - /grade-book: Current and final course grades computed from assignment group weights and drop rules,
+ *   with what-if scores.
  * - /course-assignments: Returns a list of all assignments (past and current due) for the enrolled courses.
+ * - /planner-items: Returns the assignments, quizzes and events in a date window from the Canvas planner.
+ * - /items: Returns every assignment, quiz and active event as a typed CanvasItem rather than a formatted string.
+ * - /changes: Returns only the items added, changed or removed since a client's last dataset version.
+ * - /notifications: A Server-Sent Events stream of typed notifications (grade posted, due date moved, ...).
+ * - /deadlines/next, /deadlines/load, /deadlines/overloaded: Upcoming deadlines and workload per day or week.
+ * - /search: Type-ahead full-text search over item names, course names and descriptions.
+ * - /calendar/week/{isoWeek}, /calendar/month/{yyyy-MM}: Pre-bucketed days for the web calendar, with ETags.
+ * 
+ * Encoding: every endpoint negotiates its format from the Accept header. Besides application/json,
+ * clients may ask for application/x-jackson-smile (about half the size of JSON for /items, and faster to
+ * decode) or application/cbor (about 10% smaller than JSON). Most of the saving comes from gzip, applied when
+ * the client sends Accept-Encoding: gzip (see server.compression in application.properties): it shrinks
+ * /items about tenfold, and Smile adds nothing on top of it. EncodingBenchmarkTests (mvn test -Pbenchmark)
+ * measures the sizes and encode/decode times.
  * 
  * The @CrossOrigin annotation allows cross-origin requests, making the data accessible
  * from front-end applications served from different domains.
+ * 
+ * Execution: with spring.threads.virtual.enabled (the default) Tomcat serves every request on its own virtual
+ * thread, so an endpoint waiting for a crawl parks that thread instead of holding one of a fixed pool of
+ * platform threads, and slow Canvas responses no longer cap how many requests the server takes at once. The
+ * Canvas calls of a crawl run concurrently on the canvasFetchExecutor (at most canvas.fetch.threads at once),
+ * so the wait is about the slowest chain of calls rather than their sum, and the dataset-backed endpoints
+ * share one crawl between concurrent requests. ExecutionModeBenchmarkTests (mvn test -Pbenchmark) compares
+ * this with platform threads.
+ *
+ * Deadlines: every request has a time budget (canvas.request.budget, or X-Request-Budget-Ms from the caller),
+ * and Canvas calls made for it are hedged and cut off when it runs out (see HedgedFetcher). A response built
+ * without some of that data carries "X-Result-Incomplete: true"; if Canvas does not answer at all in time the
+ * request fails with 504, except for the dataset-backed endpoints, which then answer from the last sync.
  */
 @RestController
 @CrossOrigin
 public class CanvasController {
 
+    // Session attribute holding the session's what-if scores.
+    private static final String WHAT_IF_ATTRIBUTE = GradeService.WhatIf.class.getName();
+
     // Service that communicates with Canvas API to fetch courses, assignments, grades, etc.
     private final CanvasAPIService canvasService;
 
+    // Service that keeps the versioned dataset in sync with Canvas.
+    private final CanvasSyncService syncService;
+
+    // Versioned copy of the user's items that change feeds are served from.
+    private final CanvasDataset dataset;
+
+    // Pushes notifications about dataset changes to subscribed clients.
+    private final NotificationBroadcaster broadcaster;
+
+    // Due dates ordered for upcoming-deadline and workload queries.
+    private final DeadlineIndex deadlineIndex;
+
+    // Inverted index for /search.
+    private final SearchIndex searchIndex;
+
+    // Grade books for /grade-book, with each session's what-if scores.
+    private final GradeService gradeService;
+
+    // Per-day buckets for /calendar/week and /calendar/month.
+    private final CalendarIndex calendarIndex;
+
+    // How long browsers may reuse a calendar view before revalidating it.
+    @Value("${canvas.calendar.max-age:30s}")
+    private Duration calendarMaxAge;
+
+    // Part of every calendar ETag, so ETags from before a restart (when versions start over) never match.
+    private final long calendarEpoch = System.currentTimeMillis();
+
+    // Default thresholds for /deadlines/overloaded.
+    @Value("${canvas.deadlines.overload-points:100}")
+    private double overloadPoints;
+    @Value("${canvas.deadlines.overload-items:3}")
+    private int overloadItems;
+
     /**
      * Constructor-based dependency injection:
-     * The CanvasAPIService is provided by the Spring context, and we store it for use in our endpoints.
+     * The services are provided by the Spring context, and we store them for use in our endpoints.
      *
      * @param canvasService The service that interacts with Canvas API.
+     * @param syncService   The service that syncs the versioned dataset with Canvas.
+     * @param dataset       The versioned dataset.
+     * @param broadcaster   The push notification broadcaster.
+     * @param deadlineIndex The index of upcoming deadlines.
+     * @param searchIndex   The full-text index of all items.
+     * @param gradeService  The service that computes course grades.
+     * @param calendarIndex The per-day buckets of the calendar views.
      */
-    public CanvasController(CanvasAPIService canvasService) {
+    public CanvasController(CanvasAPIService canvasService, CanvasSyncService syncService, CanvasDataset dataset,
+                            NotificationBroadcaster broadcaster, DeadlineIndex deadlineIndex,
+                            SearchIndex searchIndex, GradeService gradeService, CalendarIndex calendarIndex) {
         this.canvasService = canvasService;
+        this.syncService = syncService;
+        this.dataset = dataset;
+        this.broadcaster = broadcaster;
+        this.deadlineIndex = deadlineIndex;
+        this.searchIndex = searchIndex;
+        this.gradeService = gradeService;
+        this.calendarIndex = calendarIndex;
     }
 
     /**
@@ -81,15 +186,42 @@ public class CanvasController {
     }
 
     /**
-     * GET /active-events
+     * GET /active-events?start={yyyy-MM-dd}&end={yyyy-MM-dd}
      * Fetches a list of active calendar events from Canvas, excluding blackout dates.
      * Events might include upcoming due dates, class events, and other scheduled items.
+     * Without dates every event is returned; with only one of them the window is four weeks long.
      *
+     * @param start First day to include (optional).
+     * @param end   Last day to include (optional).
      * @return A list of strings describing each active calendar event.
      */
     @GetMapping("/active-events")
-    public List<String> getActiveCalendarEvents() {
-        return canvasService.getActiveCalendarEvents();
+    public List<String> getActiveCalendarEvents(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end) {
+        if (start == null && end == null) {
+            return canvasService.getActiveCalendarEvents();
+        }
+        LocalDate from = start != null ? start : end.minusWeeks(4);
+        return canvasService.getActiveCalendarEvents(from, end != null ? end : from.plusWeeks(4));
+    }
+
+    /**
+     * GET /planner-items?start={yyyy-MM-dd}&end={yyyy-MM-dd}
+     * Returns the assignments, quizzes and calendar events of all courses between two dates as typed items,
+     * read from Canvas's planner in one paged stream. Cheaper than /items for a date window, but without
+     * scores. Defaults to the next four weeks.
+     *
+     * @param start First day to include (defaults to today).
+     * @param end   Last day to include (defaults to four weeks after {@code start}).
+     * @return The planner items in date order.
+     */
+    @GetMapping("/planner-items")
+    public List<CanvasItem> getPlannerItems(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end) {
+        LocalDate from = start != null ? start : LocalDate.now(deadlineIndex.getZone());
+        return canvasService.getPlannerItems(from, end != null ? end : from.plusWeeks(4));
     }
 
     /**
@@ -104,6 +236,76 @@ public class CanvasController {
         return canvasService.getCourseGrades(); 
     }
 
+    /**
+     * GET /grade-book?force={true|false}
+     * Returns the current and final grade of every course, computed the way Canvas does from the assignment
+     * groups: group weights (if the course uses them), drop_lowest/drop_highest/never_drop rules, with
+     * ungraded work left out of the current grade and counted as zero in the final grade. Each grade comes
+     * with its per-group breakdown and any what-if scores this session has set.
+     *
+     * @param force Whether to re-read Canvas rather than reuse grade books fetched within canvas.sync.max-age.
+     * @return One grade per course.
+     */
+    @GetMapping("/grade-book")
+    public List<GradeBook.Grade> getGradeBook(@RequestParam(defaultValue = "false") boolean force, HttpSession session) {
+        return gradeService.getGrades(force, whatIf(session));
+    }
+
+    /**
+     * GET /grade-book/{courseId}
+     * Returns the grade of one course (see /grade-book).
+     *
+     * @param courseId The Canvas course id.
+     * @return The course grade, or 404 if the user has no such course.
+     */
+    @GetMapping("/grade-book/{courseId}")
+    public GradeBook.Grade getCourseGradeBook(@PathVariable String courseId, HttpSession session) {
+        return gradeService.getGrade(courseId, whatIf(session));
+    }
+
+    /**
+     * PUT /grade-book/{courseId}/what-if
+     * Sets hypothetical scores, e.g. {"assignment:123": 18.5}, and returns the grade they would give; a null
+     * score goes back to the real one. What-if scores belong to the HTTP session and stay set until cleared
+     * (or the session expires); only the groups of the changed assignments are recomputed, so this can be
+     * called on every keystroke. Canvas is not contacted.
+     *
+     * @param courseId The Canvas course id.
+     * @param scores   Hypothetical scores by assignment id.
+     * @return The course grade with the what-if scores applied, or 400 for an assignment not in the course.
+     */
+    @PutMapping("/grade-book/{courseId}/what-if")
+    public GradeBook.Grade putWhatIf(@PathVariable String courseId, @RequestBody Map<String, Double> scores,
+                                     HttpSession session) {
+        return gradeService.setWhatIf(courseId, scores, whatIf(session));
+    }
+
+    /**
+     * DELETE /grade-book/{courseId}/what-if
+     * Clears every what-if score this session set on a course.
+     *
+     * @param courseId The Canvas course id.
+     * @return The course grade from real scores only.
+     */
+    @DeleteMapping("/grade-book/{courseId}/what-if")
+    public GradeBook.Grade deleteWhatIf(@PathVariable String courseId, HttpSession session) {
+        return gradeService.clearWhatIf(courseId, whatIf(session));
+    }
+
+    /**
+     * Returns the session's what-if scores, creating them (and the session) on first use.
+     */
+    private static GradeService.WhatIf whatIf(HttpSession session) {
+        synchronized (WebUtils.getSessionMutex(session)) {
+            GradeService.WhatIf whatIf = (GradeService.WhatIf) session.getAttribute(WHAT_IF_ATTRIBUTE);
+            if (whatIf == null) {
+                whatIf = new GradeService.WhatIf();
+                session.setAttribute(WHAT_IF_ATTRIBUTE, whatIf);
+            }
+            return whatIf;
+        }
+    }
+
     /**
      * GET /course-assignments
      * Returns all assignments (both past and current due) across all enrolled courses.
@@ -116,4 +318,235 @@ public class CanvasController {
     public List<String> getAllCourseAssignments() {
         return canvasService.getAllCourseAssignments();
     }
+
+    /**
+     * GET /items
+     * Returns every assignment and quiz across all courses, plus active calendar events, as typed items
+     * (id, type, course, name, due date, points possible and points earned). This carries the same data as /course-grades without
+     * the formatted strings, so it is the endpoint to request as Smile or CBOR.
+     *
+     * @return A list of CanvasItem objects in course and listing order.
+     */
+    @GetMapping("/items")
+    public List<CanvasItem> getCourseItems() {
+        return canvasService.getCourseItems();
+    }
+
+    /**
+     * GET /changes?since={version}&refresh={true|false}
+     * Returns the items added or changed, and the ids removed, since the given dataset version.
+     * Clients keep the returned version and pass it back next time, so a refresh only transfers what changed.
+     * With since=0 (or a version too old to diff against) the whole dataset is returned with full=true.
+     *
+     * The dataset is re-synced with Canvas first if the last sync is older than canvas.sync.max-age,
+     * or always when refresh=true.
+     *
+     * @param since   The dataset version the client already has.
+     * @param refresh Whether to force a sync with Canvas before answering.
+     * @return The changes since the given version and the new version to remember.
+     */
+    @GetMapping("/changes")
+    public ChangeFeed getChanges(@RequestParam(defaultValue = "0") long since,
+                                 @RequestParam(defaultValue = "false") boolean refresh) {
+        refreshDataset(refresh);
+        return dataset.changesSince(since);
+    }
+
+    /**
+     * GET /notifications
+     * Opens a Server-Sent Events stream. Each event is named after its CanvasNotification type
+     * (GRADE_POSTED, DUE_DATE_MOVED, NEW_ITEM, EVENT_CANCELLED, ...) and carries the notification as JSON,
+     * with the dataset version as the event id. A RESYNC event means the client fell behind and should
+     * pull /changes. Browsers can subscribe with EventSource, which reconnects automatically.
+     *
+     * @return An emitter that stays open until the client disconnects or canvas.push.connection-timeout passes.
+     */
+    @GetMapping(path = "/notifications", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getNotifications() {
+        return broadcaster.subscribe();
+    }
+
+    /**
+     * GET /deadlines/next?limit={n}
+     * Returns the next assignments and quizzes that are due, soonest first.
+     *
+     * @param limit The maximum number of deadlines to return.
+     * @return Up to {@code limit} items due from now on.
+     */
+    @GetMapping("/deadlines/next")
+    public List<CanvasItem> getNextDeadlines(@RequestParam(defaultValue = "10") int limit) {
+        refreshDataset(false);
+        return deadlineIndex.next(Instant.now(), limit);
+    }
+
+    /**
+     * GET /deadlines/load?period={day|week}&from={yyyy-MM-dd}&to={yyyy-MM-dd}
+     * Returns the number of deadlines and the points at stake per day or per week (Monday to Sunday).
+     * Defaults to the next four weeks. Days or weeks without deadlines are left out.
+     *
+     * @param period "day" or "week".
+     * @param from   First day to include (defaults to today).
+     * @param to     Last day to include (defaults to four weeks after {@code from}).
+     * @return The workload per day or week, in date order.
+     */
+    @GetMapping("/deadlines/load")
+    public List<DeadlineIndex.Workload> getWorkload(
+            @RequestParam(defaultValue = "day") String period,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        refreshDataset(false);
+        LocalDate start = from != null ? from : LocalDate.now(deadlineIndex.getZone());
+        LocalDate end = to != null ? to : start.plusWeeks(4);
+        return "week".equalsIgnoreCase(period) ? deadlineIndex.weekly(start, end) : deadlineIndex.daily(start, end);
+    }
+
+    /**
+     * GET /deadlines/overloaded?minPoints={points}&minItems={count}&from={yyyy-MM-dd}&to={yyyy-MM-dd}
+     * Returns the days whose points at stake or number of deadlines reach a threshold, to flag
+     * days where too much is due at once. Thresholds default to canvas.deadlines.overload-points
+     * and canvas.deadlines.overload-items; dates default to the next four weeks.
+     *
+     * @return The overloaded days, in date order.
+     */
+    @GetMapping("/deadlines/overloaded")
+    public List<DeadlineIndex.Workload> getOverloadedDays(
+            @RequestParam(required = false) Double minPoints,
+            @RequestParam(required = false) Integer minItems,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        refreshDataset(false);
+        LocalDate start = from != null ? from : LocalDate.now(deadlineIndex.getZone());
+        LocalDate end = to != null ? to : start.plusWeeks(4);
+        return deadlineIndex.overloaded(start, end,
+                minPoints != null ? minPoints : overloadPoints,
+                minItems != null ? minItems : overloadItems);
+    }
+
+    /**
+     * GET /search?q={text}&limit={n}
+     * Full-text search over the names, course names and descriptions of all items. Every word of the query
+     * must match, as a prefix, so the endpoint can be called on each keystroke for type-ahead.
+     *
+     * @param q     The search text.
+     * @param limit The maximum number of items to return.
+     * @return The matching items, best match first.
+     */
+    @GetMapping("/search")
+    public List<CanvasItem> search(@RequestParam String q, @RequestParam(defaultValue = "20") int limit) {
+        refreshDataset(false);
+        return searchIndex.search(q, limit);
+    }
+
+    /**
+     * GET /search/stats
+     * Returns the size of the search index and its estimated memory use per item.
+     *
+     * @return The index statistics.
+     */
+    @GetMapping("/search/stats")
+    public SearchIndex.Stats getSearchStats() {
+        return searchIndex.getStats();
+    }
+
+    /**
+     * GET /calendar/week/{isoWeek}
+     * Returns one ISO week (e.g. 2026-W42), Monday to Sunday: every day with its assignments, quizzes and
+     * events in time order and its points possible and earned, plus the week's totals. The days come from
+     * CalendarIndex, which is kept up to date by each sync, so nothing is bucketed per request.
+     *
+     * The response carries an ETag that only changes when something in the week changes, so a browser
+     * revalidating after canvas.calendar.max-age gets a 304 without a body, and Link headers (rel=prefetch)
+     * to the previous and next weeks so they can be fetched before the user navigates. The week can be sent as
+     * JSON, Smile or CBOR, so the ETag also depends on the Accept header and the response varies by it.
+     *
+     * @param isoWeek The week, as yyyy-Www.
+     * @param accept  The request's Accept header, if any.
+     * @return The week, or 400 if the week is not valid.
+     */
+    @GetMapping("/calendar/week/{isoWeek}")
+    public ResponseEntity<CalendarIndex.Period> getCalendarWeek(@PathVariable String isoWeek,
+                                                                @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        LocalDate monday;
+        try {
+            monday = LocalDate.parse(isoWeek + "-1", DateTimeFormatter.ISO_WEEK_DATE);
+        } catch (DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Expected an ISO week such as 2026-W42, got " + isoWeek);
+        }
+        refreshDataset(false);
+        return calendarResponse(calendarIndex.week(monday), "/calendar/week/", accept);
+    }
+
+    /**
+     * GET /calendar/month/{yyyy-MM}
+     * Returns one month with every day in it, in the same form and with the same caching as /calendar/week.
+     *
+     * @param month  The month, as yyyy-MM.
+     * @param accept The request's Accept header, if any.
+     * @return The month, or 400 if the month is not valid.
+     */
+    @GetMapping("/calendar/month/{month}")
+    public ResponseEntity<CalendarIndex.Period> getCalendarMonth(@PathVariable String month,
+                                                                 @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        YearMonth yearMonth;
+        try {
+            yearMonth = YearMonth.parse(month);
+        } catch (DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Expected a month such as 2026-10, got " + month);
+        }
+        refreshDataset(false);
+        return calendarResponse(calendarIndex.month(yearMonth), "/calendar/month/", accept);
+    }
+
+    /**
+     * GET /dataset/stats
+     * Returns the number of items in the dataset and the memory its item store uses, per item and in total.
+     *
+     * @return The store statistics.
+     */
+    @GetMapping("/dataset/stats")
+    public CanvasDataset.Stats getDatasetStats() {
+        return dataset.getStats();
+    }
+
+    /**
+     * Wraps a calendar view with its ETag, cache headers and prefetch links to the adjacent periods.
+     * Spring answers 304 Not Modified itself when the request's If-None-Match matches the ETag.
+     * The encoding (JSON, Smile or CBOR) is negotiated from the Accept header, so the ETag includes a hash of
+     * it: a validator of one encoding never turns a request for another into a 304. Vary: Accept keeps
+     * caches from serving one encoding for another.
+     */
+    private ResponseEntity<CalendarIndex.Period> calendarResponse(CalendarIndex.Period period, String path, String accept) {
+        String encoding = Integer.toHexString(accept != null ? accept.trim().hashCode() : 0);
+        return ResponseEntity.ok()
+                .eTag("W/\"" + calendarEpoch + "-" + period.version() + "-" + encoding + "\"")
+                .varyBy(HttpHeaders.ACCEPT)
+                .cacheControl(CacheControl.maxAge(calendarMaxAge).cachePrivate().mustRevalidate())
+                .header(HttpHeaders.LINK,
+                        "<" + path + period.previous() + ">; rel=\"prefetch\"",
+                        "<" + path + period.next() + ">; rel=\"prefetch\"")
+                .body(period);
+    }
+
+    /**
+     * Syncs the dataset with Canvas before a dataset-backed endpoint answers: always, bypassing the response
+     * cache, when {@code force} is set,
+     * otherwise only if the last sync is older than canvas.sync.max-age.
+     * If the sync fails or runs out of request budget but earlier data exists, the endpoint answers from that
+     * data and the response is marked incomplete (X-Result-Incomplete) instead of failing.
+     */
+    private void refreshDataset(boolean force) {
+        try {
+            if (force) {
+                syncService.refresh();
+            } else {
+                syncService.syncIfStale();
+            }
+        } catch (RuntimeException e) {
+            RequestDeadline deadline = RequestDeadline.current();
+            if (deadline == null || dataset.getVersion() == 0) {
+                throw e;
+            }
+            deadline.markIncomplete();
+        }
+    }
 }
@@ -0,0 +1,262 @@
+package com.example.CalanderCanvas;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+/**
+ * CanvasDataset:
+ * The server's latest copy of the user's Canvas items, stamped with versions so clients can ask
+ * for only what changed since they last looked.
+ *
+ * Every sync that changes something bumps the dataset version by one and stamps each added or changed
+ * item with it. Removed items leave a tombstone with the version they were removed at. A bounded number
+ * of tombstones is kept; a client whose version predates the oldest one gets the full dataset instead.
+ *
+ * Each applied change is also passed to every DatasetListener bean, which is how the derived indexes
+ * stay current without rescanning.
+ *
+ * The items themselves live in a ColumnarItemStore (primitive columns plus a string dictionary, optionally
+ * off-heap with canvas.store.off-heap), which holds a tenant's items in a fraction of the memory CanvasItem
+ * objects would take. The indexes keep only item keys and decode the items they return from the store
+ * through {@link #read}, so the store holds the only copy; see {@link #getStats()}.
+ *
+ * Changes are applied under a write lock and everything else reads under the read lock, so queries run
+ * concurrently. Listeners are called with the write lock held, and {@link #read} takes the read lock before
+ * a listener takes its own lock, so the two are always taken in the same order.
+ */
+@Component
+public class CanvasDataset {
+
+    // Current items, in crawl order, each with the version it last changed at.
+    private final ColumnarItemStore store;
+
+    // Version each removed item was removed at, oldest first.
+    private final LinkedHashMap<String, Long> tombstones = new LinkedHashMap<>();
+
+    // Maximum number of tombstones retained before the oldest are forgotten.
+    private final int maxTombstones;
+
+    // Listeners notified after each change; resolved lazily so listeners may depend on the dataset.
+    private final ObjectProvider<DatasetListener> listeners;
+
+    // Version of the latest applied change (0 = empty, never synced).
+    private long version;
+
+    // Clients below this version cannot be served a diff because tombstones they need were pruned.
+    private long floorVersion;
+
+    // Write-locked by apply, read-locked by everything else.
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public CanvasDataset(ObjectProvider<DatasetListener> listeners,
+                         @Value("${canvas.changes.max-tombstones:10000}") int maxTombstones,
+                         @Value("${canvas.store.off-heap:false}") boolean offHeap) {
+        this.listeners = listeners;
+        this.maxTombstones = maxTombstones;
+        this.store = new ColumnarItemStore(offHeap);
+    }
+
+    /**
+     * Applies the result of a crawl.
+     *
+     * Sync scopes (courses, or the calendar) listed in {@code incompleteScopes} could not be crawled fully,
+     * so their existing items are neither updated nor removed; only items not seen before are added from them.
+     *
+     * @param crawled             Every item returned by the crawl.
+     * @param incompleteScopes    Sync scopes whose crawl failed partway (see {@link CanvasItem#syncScope()}).
+     * @return The change that was applied (empty if nothing changed; the version is then not bumped).
+     */
+    public DatasetChange apply(List<CanvasItem> crawled, Set<String> incompleteScopes) {
+        DatasetChange change;
+        lock.writeLock().lock();
+        try {
+            long next = version + 1;
+            List<CanvasItem> added = new ArrayList<>();
+            List<DatasetChange.Update> updated = new ArrayList<>();
+            List<CanvasItem> removed = new ArrayList<>();
+
+            Map<String, CanvasItem> seen = new LinkedHashMap<>();
+            for (CanvasItem item : crawled) {
+                seen.put(item.id(), item);
+            }
+
+            // Items that are gone from a fully crawled scope were removed in Canvas.
+            boolean[] seenRows = new boolean[store.rowCount()];
+            for (String id : seen.keySet()) {
+                int row = store.find(id);
+                if (row >= 0) {
+                    seenRows[row] = true;
+                }
+            }
+            for (int row = 0; row < seenRows.length; row++) {
+                if (store.isLive(row) && !seenRows[row] && !incompleteScopes.contains(store.syncScope(row))) {
+                    CanvasItem existing = store.get(row);
+                    store.remove(row);
+                    removed.add(existing);
+                    tombstones.put(existing.id(), next);
+                }
+            }
+
+            for (CanvasItem item : seen.values()) {
+                int row = store.find(item.id());
+                if (row < 0) {
+                    store.add(item, next);
+                    tombstones.remove(item.id());
+                    added.add(item);
+                } else if (!store.matches(row, item) && !incompleteScopes.contains(item.syncScope())) {
+                    CanvasItem before = store.get(row);
+                    store.set(row, item, next);
+                    updated.add(new DatasetChange.Update(before, item));
+                }
+            }
+
+            change = new DatasetChange(next, added, updated, removed);
+            if (change.isEmpty()) {
+                return new DatasetChange(version, added, updated, removed);
+            }
+            version = next;
+            pruneTombstones();
+            store.compactIfNeeded();
+
+            // Listeners are called under the lock so they always see changes in version order.
+            listeners.orderedStream().forEach(listener -> listener.onDatasetChange(change));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return change;
+    }
+
+    /**
+     * Returns what changed after the given version.
+     *
+     * @param since The version the client already has (0 if it has nothing).
+     * @return The items added or changed and the ids removed since then, or the full dataset if
+     *         {@code since} is 0, in the future, or older than the retained tombstones.
+     */
+    public ChangeFeed changesSince(long since) {
+        lock.readLock().lock();
+        try {
+            boolean full = since <= 0 || since < floorVersion || since > version;
+            List<CanvasItem> upserts = new ArrayList<>();
+            for (int row = 0; row < store.rowCount(); row++) {
+                if (store.isLive(row) && (full || store.version(row) > since)) {
+                    upserts.add(store.get(row));
+                }
+            }
+
+            List<String> removed = new ArrayList<>();
+            if (!full) {
+                for (Map.Entry<String, Long> tombstone : tombstones.entrySet()) {
+                    if (tombstone.getValue() > since) {
+                        removed.add(tombstone.getKey());
+                    }
+                }
+            }
+            return new ChangeFeed(version, full, upserts, removed);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return A snapshot of every current item, in crawl order.
+     */
+    public List<CanvasItem> snapshot() {
+        lock.readLock().lock();
+        try {
+            List<CanvasItem> snapshot = new ArrayList<>(store.size());
+            for (int row = 0; row < store.rowCount(); row++) {
+                if (store.isLive(row)) {
+                    snapshot.add(store.get(row));
+                }
+            }
+            return snapshot;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs an index query against the current items. The query gets a decoder from item key (see
+     * {@link ColumnarItemStore#keyOf}) to item, or null for a key that is not in the dataset, and runs under
+     * the read lock, so the keys an index holds and the items they decode to are of the same version.
+     */
+    public <T> T read(Function<LongFunction<CanvasItem>, T> query) {
+        lock.readLock().lock();
+        try {
+            return query.apply(key -> {
+                int row = store.find(key);
+                return row >= 0 ? store.get(row) : null;
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Memory use of the tenant, the item store plus every listener's index, for /dataset/stats.
+     */
+    public Stats getStats() {
+        lock.readLock().lock();
+        try {
+            int items = store.size();
+            long storeBytes = store.estimatedBytes();
+            long indexBytes = listeners.orderedStream().mapToLong(DatasetListener::estimatedBytes).sum();
+            long bytes = storeBytes + indexBytes;
+            long perItem = items == 0 ? 0 : bytes / items;
+            long tenantsPerGigabyte = bytes == 0 ? 0 : (1L << 30) / bytes;
+            return new Stats(items, store.distinctStrings(), storeBytes, indexBytes, bytes, perItem, tenantsPerGigabyte,
+                    store.isOffHeap());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The version of the latest applied change.
+     */
+    public long getVersion() {
+        lock.readLock().lock();
+        try {
+            return version;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Forgets the oldest tombstones beyond the configured limit and raises the floor version accordingly.
+     */
+    private void pruneTombstones() {
+        Iterator<Map.Entry<String, Long>> it = tombstones.entrySet().iterator();
+        while (tombstones.size() > maxTombstones && it.hasNext()) {
+            floorVersion = Math.max(floorVersion, it.next().getValue());
+            it.remove();
+        }
+    }
+
+    /**
+     * Memory use of the tenant. Each deployment serves one Canvas user (one api.key), so the store and the
+     * indexes over it are one tenant; tenantsPerGigabyte is how many tenants of this size fit in a gigabyte.
+     *
+     * @param storeBytes     Estimated memory of the item store.
+     * @param indexBytes     Estimated memory of the indexes (search, deadlines, calendar).
+     * @param estimatedBytes storeBytes plus indexBytes.
+     * @param bytesPerItem   estimatedBytes divided by items.
+     */
+    public record Stats(int items, int distinctStrings, long storeBytes, long indexBytes, long estimatedBytes,
+                        long bytesPerItem, long tenantsPerGigabyte, boolean offHeap) {
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.CalanderCanvas;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CanvasEvents:
+ * Java Flight Recorder events for the phases of serving Canvas data, so a slow refresh can be broken down
+ * into Canvas latency, JSON parsing, building items and strings, and writing the response.
+ *
+ * - canvas.Fetch: one HTTP attempt against Canvas (a hedge is a second attempt for the same URL).
+ * - canvas.Parse: parsing one Canvas response body with objectMapper.readTree.
+ * - canvas.Build: building one course's formatted entries and CanvasItems once its data has arrived.
+ * - canvas.CourseCrawl: one course from its listing requests to its built items.
+ * - canvas.Response: one request to this server, including serializing the response body.
+ *
+ * The events are recorded only while a recording runs (e.g. -XX:StartFlightRecording, or the crawlprofile
+ * actuator endpoint); otherwise creating and committing them costs next to nothing. Stack traces are off
+ * to keep them cheap under load. Fetch paths never include the query string, which holds the access token.
+ *
+ * Traces: a recording is JVM-wide, so every event carries the trace id of the work it was done for, and a
+ * reader interested in one request or one profiled crawl keeps only the events with its id. Each request to
+ * this server gets a trace (see ResponseEventFilter), and the work started on its thread inherits it; work
+ * that continues on another thread (fetch tasks, completion callbacks) is given the id explicitly, as the
+ * request deadline is. A fetch shared by several callers (see HedgedFetcher) carries the trace of the caller
+ * that started it. Background work (scheduled syncs, the warm-up crawl) has no trace.
+ */
+public final class CanvasEvents {
+
+    // Trace of the work being done on this thread, if any.
+    private static final ThreadLocal<String> TRACE = new ThreadLocal<>();
+
+    // Numbers the traces of this JVM.
+    private static final AtomicLong TRACES = new AtomicLong();
+
+    private CanvasEvents() {
+    }
+
+    /**
+     * @return The trace id of the work on this thread, or null if there is none.
+     */
+    public static String currentTrace() {
+        return TRACE.get();
+    }
+
+    /**
+     * Starts a new trace on the current thread.
+     *
+     * @param kind What is traced, e.g. "request"; the id is the kind and a number unique within this JVM.
+     * @return The new trace id.
+     */
+    static String startTrace(String kind) {
+        String trace = kind + "-" + TRACES.incrementAndGet();
+        TRACE.set(trace);
+        return trace;
+    }
+
+    /**
+     * Ends the current thread's trace.
+     */
+    static void clearTrace() {
+        TRACE.remove();
+    }
+
+    @Name("canvas.Fetch")
+    @Label("Canvas Fetch")
+    @Category({"Canvas", "Upstream"})
+    @Description("One HTTP attempt against the Canvas API")
+    @StackTrace(false)
+    public static class FetchEvent extends Event {
+        @Label("Trace")
+        @Description("Id of the request or profile this event was recorded for")
+        public String trace;
+
+        @Label("Path")
+        public String path;
+
+        @Label("Status")
+        public int status;
+
+        @Label("Hedge")
+        @Description("Whether this attempt was a hedge sent because the first one was slow")
+        public boolean hedge;
+
+        @Label("Response Length")
+        @Description("Length of the response body in characters (the body is decoded before it is measured)")
+        public long chars;
+    }
+
+    @Name("canvas.Parse")
+    @Label("Canvas Parse")
+    @Category({"Canvas", "Processing"})
+    @Description("Parsing one Canvas response body as JSON")
+    @StackTrace(false)
+    public static class ParseEvent extends Event {
+        @Label("Trace")
+        @Description("Id of the request or profile this event was recorded for")
+        public String trace;
+
+        @Label("Body Length")
+        @Description("Length of the parsed body in characters")
+        public long chars;
+    }
+
+    @Name("canvas.Build")
+    @Label("Canvas Build")
+    @Category({"Canvas", "Processing"})
+    @Description("Building a course's formatted entries and typed items")
+    @StackTrace(false)
+    public static class BuildEvent extends Event {
+        @Label("Trace")
+        @Description("Id of the request or profile this event was recorded for")
+        public String trace;
+
+        @Label("Course")
+        public String courseId;
+
+        @Label("Items")
+        public int items;
+    }
+
+    @Name("canvas.CourseCrawl")
+    @Label("Canvas Course Crawl")
+    @Category({"Canvas", "Crawl"})
+    @Description("One course, from its listing requests to its built items")
+    @StackTrace(false)
+    public static class CourseCrawlEvent extends Event {
+        @Label("Trace")
+        @Description("Id of the request or profile this event was recorded for")
+        public String trace;
+
+        @Label("Course")
+        public String courseId;
+
+        @Label("Items")
+        public int items;
+
+        @Label("Complete")
+        public boolean complete;
+    }
+
+    @Name("canvas.Response")
+    @Label("Canvas Response")
+    @Category({"Canvas", "Server"})
+    @Description("One request to this server, including writing the response")
+    @StackTrace(false)
+    public static class ResponseEvent extends Event {
+        @Label("Trace")
+        @Description("Id of the request or profile this event was recorded for")
+        public String trace;
+
+        @Label("Method")
+        public String method;
+
+        @Label("Path")
+        public String path;
+
+        @Label("Status")
+        public int status;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.CalanderCanvas;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+
+/**
+ * CanvasItem:
+ * A typed view of one dated Canvas item (assignment, quiz or calendar event).
+ *
+ * The older endpoints return human-readable strings such as
+ * "Assignment: NAME, Due Date: DATE, Points Earned: PE, Total Points: TP", which every client has to
+ * split and re-parse. CanvasItem carries the same data as typed fields, so it can be sent compactly
+ * (for example as Smile or CBOR) and indexed without string parsing.
+ *
+ * @param id             Stable identifier, unique across item types, e.g. "assignment:123".
+ * @param type           Whether this is an assignment, a quiz or a calendar event.
+ * @param courseId       Canvas id of the owning course.
+ * @param courseName     Display name of the owning course.
+ * @param name           Assignment name, quiz title or event title.
+ * @param dueAt          Due date (or start time for events), or null when Canvas has none.
+ * @param pointsPossible Total points, or null when Canvas has none.
+ * @param pointsEarned   The student's score, or null when not graded yet.
+ * @param description    The item's description as plain text (HTML removed), or null when it has none.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL) // Missing due dates and ungraded scores are omitted rather than sent as null.
+public record CanvasItem(String id, Type type, String courseId, String courseName, String name,
+                         Instant dueAt, Double pointsPossible, Double pointsEarned, String description) {
+
+    // Sync scope shared by all calendar events, which are fetched by one request rather than per course.
+    public static final String EVENTS_SCOPE = "events";
+
+    /**
+     * The part of the crawl this item comes from: its course for assignments and quizzes, or
+     * {@link #EVENTS_SCOPE} for calendar events. If that part of a crawl fails, the sync leaves
+     * the scope's existing items alone.
+     */
+    public String syncScope() {
+        return type == Type.EVENT ? EVENTS_SCOPE : courseId;
+    }
+
+    /**
+     * The kinds of item the crawl produces.
+     */
+    public enum Type {
+        ASSIGNMENT,
+        QUIZ,
+        EVENT
+    }
+}
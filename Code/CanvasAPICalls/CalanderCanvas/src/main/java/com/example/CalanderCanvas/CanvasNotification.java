@@ -0,0 +1,77 @@
+package com.example.CalanderCanvas;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * CanvasNotification:
+ * A typed event pushed to subscribed clients when a sync finds something a student cares about.
+ *
+ * @param type             What happened.
+ * @param version          The dataset version the change belongs to; clients can pass it to /changes.
+ * @param item             The item as it is now (as it was before removal for removals; null for RESYNC).
+ * @param previousDueAt    The old due date, for DUE_DATE_MOVED.
+ * @param previousEarned   The old score, for GRADE_CHANGED.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record CanvasNotification(Type type, long version, CanvasItem item, Instant previousDueAt, Double previousEarned) {
+
+    /**
+     * The kinds of notification.
+     */
+    public enum Type {
+        NEW_ITEM,        // A new assignment, quiz or event appeared.
+        GRADE_POSTED,    // An item that had no score now has one.
+        GRADE_CHANGED,   // An existing score changed.
+        DUE_DATE_MOVED,  // The due date (or event start) changed.
+        ITEM_UPDATED,    // Something else about the item changed (name, points possible, ...).
+        ITEM_REMOVED,    // An assignment or quiz was deleted.
+        EVENT_CANCELLED, // A calendar event was deleted.
+        RESYNC           // The dataset was (re)loaded or the client fell behind; pull /changes instead of relying on pushes.
+    }
+
+    /**
+     * Turns a dataset change into the notifications it implies. An update that both posts a grade and
+     * moves the due date yields one notification for each.
+     *
+     * @param change The change applied by a sync.
+     * @return The notifications, in the order added, updated, removed.
+     */
+    public static List<CanvasNotification> fromChange(DatasetChange change) {
+        long version = change.version();
+        List<CanvasNotification> notifications = new ArrayList<>();
+
+        for (CanvasItem item : change.added()) {
+            notifications.add(new CanvasNotification(Type.NEW_ITEM, version, item, null, null));
+        }
+
+        for (DatasetChange.Update update : change.updated()) {
+            CanvasItem before = update.before();
+            CanvasItem after = update.after();
+            boolean specific = false;
+
+            if (!Objects.equals(before.pointsEarned(), after.pointsEarned()) && after.pointsEarned() != null) {
+                Type type = before.pointsEarned() == null ? Type.GRADE_POSTED : Type.GRADE_CHANGED;
+                notifications.add(new CanvasNotification(type, version, after, null, before.pointsEarned()));
+                specific = true;
+            }
+            if (!Objects.equals(before.dueAt(), after.dueAt())) {
+                notifications.add(new CanvasNotification(Type.DUE_DATE_MOVED, version, after, before.dueAt(), null));
+                specific = true;
+            }
+            if (!specific) {
+                notifications.add(new CanvasNotification(Type.ITEM_UPDATED, version, after, null, null));
+            }
+        }
+
+        for (CanvasItem item : change.removed()) {
+            Type type = item.type() == CanvasItem.Type.EVENT ? Type.EVENT_CANCELLED : Type.ITEM_REMOVED;
+            notifications.add(new CanvasNotification(type, version, item, null, null));
+        }
+        return notifications;
+    }
+}
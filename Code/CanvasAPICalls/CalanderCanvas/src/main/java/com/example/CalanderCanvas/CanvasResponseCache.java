@@ -0,0 +1,281 @@
+package com.example.CalanderCanvas;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * CanvasResponseCache:
+ * A two-level cache of Canvas GET responses, used by HedgedFetcher so that several instances behind a load
+ * balancer share one view of Canvas instead of each crawling it.
+ *
+ * Level 1 is local to this instance and holds decoded responses. Level 2 is a SharedCache (a Redis-protocol
+ * server, or an in-process stand-in) holding the responses encoded as Smile, a compact binary form of JSON.
+ * A lookup tries level 1, then level 2 (copying a hit into level 1), and only a miss in both goes to Canvas;
+ * the response is then stored in both. Entries live for canvas.cache.ttl from the moment Canvas answered,
+ * on every instance. Concurrent misses on one instance share a single fetch (see HedgedFetcher), but
+ * instances that miss the same URL at the same moment each fetch it, so at worst every instance fetches a
+ * URL once per TTL; usually the first instance's response is found in level 2 by the others.
+ *
+ * Entries are grouped by tenant: a SHA-256 hash of the access token in the URL, computed on every call so
+ * that the token itself is never stored, not even as a key.
+ * A forced refresh invalidates the tenant everywhere (see CanvasSyncService#refresh): its level-2
+ * generation advances and every instance is told to drop its level-1 copies. A response whose fetch started
+ * before the invalidation is stored in neither level, so a refresh is never undone by a slow fetch.
+ */
+@Component
+public class CanvasResponseCache {
+
+    // Finds the access token in a Canvas URL; group 1 is the token itself.
+    private static final Pattern ACCESS_TOKEN = Pattern.compile("[?&]access_token=([^&#]*)");
+
+    // Level 2.
+    private final SharedCache shared;
+
+    // Level 1: tenant -> cache key -> decoded response.
+    private final Map<String, Map<String, Local>> local = new ConcurrentHashMap<>();
+
+    // When each tenant was last invalidated on this instance (System.nanoTime()).
+    private final Map<String, Long> invalidatedAt = new ConcurrentHashMap<>();
+
+    // Reads response bodies, and writes/reads the level-2 entries as Smile.
+    private final ObjectMapper json;
+    private final ObjectMapper smile;
+
+    // How long an entry is used after Canvas returned it.
+    private final Duration ttl;
+
+    // Level-1 entries kept at most; beyond that, responses are only cached in level 2.
+    private final int maxLocalEntries;
+
+    // Whether responses are cached at all.
+    private final boolean enabled;
+
+    public CanvasResponseCache(SharedCache shared, ObjectMapper objectMapper,
+                               @Value("${canvas.cache.enabled:true}") boolean enabled,
+                               @Value("${canvas.cache.ttl:5m}") Duration ttl,
+                               @Value("${canvas.cache.local.max-entries:10000}") int maxLocalEntries) {
+        this.shared = shared;
+        this.json = objectMapper;
+        this.smile = new ObjectMapper(SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build());
+        this.enabled = enabled;
+        this.ttl = ttl;
+        this.maxLocalEntries = maxLocalEntries;
+        shared.onInvalidate(this::dropLocal);
+    }
+
+    /**
+     * Looks a URL up in level 1.
+     *
+     * @return The cached response, or null on a miss.
+     */
+    public ResponseEntity<String> getLocal(String url) {
+        Key key = key(url);
+        if (key == null) {
+            return null;
+        }
+        Map<String, Local> entries = local.get(key.tenant);
+        Local entry = entries != null ? entries.get(key.key) : null;
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt < System.currentTimeMillis()) {
+            entries.remove(key.key, entry);
+            return null;
+        }
+        return entry.response;
+    }
+
+    /**
+     * Looks a URL up in level 2, copying a hit into level 1. This may be a network call.
+     *
+     * @return The lookup; on a miss, pass it to {@link #put} with the response fetched from Canvas.
+     */
+    public Lookup getShared(String url) {
+        long lookedUpAt = System.nanoTime();
+        Key key = key(url);
+        if (key == null) {
+            return new Lookup(null, -1, lookedUpAt);
+        }
+        SharedCache.Lookup found = shared.get(key.tenant, key.key);
+        Lookup miss = new Lookup(null, found.generation(), lookedUpAt);
+        byte[] value = found.value();
+        if (value == null) {
+            return miss;
+        }
+        try {
+            JsonNode entry = smile.readTree(value);
+            long fetchedAt = entry.path("fetchedAt").asLong();
+            HttpHeaders headers = new HttpHeaders();
+            if (entry.path("link").isTextual()) {
+                headers.set(HttpHeaders.LINK, entry.path("link").asText());
+            }
+            JsonNode body = entry.path("body");
+            ResponseEntity<String> response = ResponseEntity.ok()
+                    .headers(headers)
+                    .body(body.isTextual() ? body.asText() : json.writeValueAsString(body));
+            putLocal(key, response, fetchedAt, lookedUpAt);
+            return new Lookup(response, found.generation(), lookedUpAt);
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable shared cache entry: " + e.getMessage());
+            return miss;
+        }
+    }
+
+    /**
+     * Stores a response Canvas just returned in both levels, unless the tenant was invalidated after the
+     * lookup that missed.
+     *
+     * @param miss The {@link #getShared} lookup made before the response was fetched.
+     */
+    public void put(String url, ResponseEntity<String> response, Lookup miss) {
+        Key key = key(url);
+        if (key == null || !response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
+            return;
+        }
+        long fetchedAt = System.currentTimeMillis();
+        if (!putLocal(key, response, fetchedAt, miss.lookedUpAt())) {
+            return;
+        }
+
+        ObjectNode entry = smile.createObjectNode();
+        entry.put("fetchedAt", fetchedAt);
+        String link = response.getHeaders().getFirst(HttpHeaders.LINK);
+        if (link != null) {
+            entry.put("link", link);
+        }
+        // The body is stored as a JSON tree, so Smile can encode its numbers and repeated names compactly.
+        try {
+            entry.set("body", json.readTree(response.getBody()));
+        } catch (IOException e) {
+            entry.set("body", TextNode.valueOf(response.getBody()));
+        }
+        try {
+            shared.put(key.tenant, key.key, smile.writeValueAsBytes(entry), miss.generation(), ttl);
+        } catch (IOException e) {
+            System.err.println("Failed to encode shared cache entry: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Drops every cached response of the given access token, on every instance.
+     */
+    public void invalidate(String accessToken) {
+        if (enabled) {
+            // Tenants come from the token as it appears, encoded, in the request URLs. Level 1 is cleared here
+            // as well, in case the shared tier cannot be reached to pass the invalidation on.
+            String tenant = tenant(UriUtils.encode(accessToken, StandardCharsets.UTF_8));
+            dropLocal(tenant);
+            shared.invalidate(tenant);
+        }
+    }
+
+    private void dropLocal(String tenant) {
+        // Recorded first, so a put that checks it after the removal sees the invalidation.
+        invalidatedAt.put(tenant, System.nanoTime());
+        local.remove(tenant);
+    }
+
+    /**
+     * Stores a response in level 1.
+     *
+     * @param lookedUpAt When the lookup that led to this response started (System.nanoTime()).
+     * @return false if the tenant was invalidated since then, in which case nothing is stored.
+     */
+    private boolean putLocal(Key key, ResponseEntity<String> response, long fetchedAt, long lookedUpAt) {
+        Long invalidated = invalidatedAt.get(key.tenant);
+        if (invalidated != null && invalidated - lookedUpAt >= 0) {
+            return false;
+        }
+        long expiresAt = fetchedAt + ttl.toMillis();
+        if (expiresAt < System.currentTimeMillis()) {
+            return true;
+        }
+        if (localSize() >= maxLocalEntries) {
+            long now = System.currentTimeMillis();
+            local.values().forEach(entries -> entries.values().removeIf(entry -> entry.expiresAt < now));
+            if (localSize() >= maxLocalEntries) {
+                return true;
+            }
+        }
+        Local stored = new Local(response, expiresAt);
+        Map<String, Local> entries = local.computeIfAbsent(key.tenant, t -> new ConcurrentHashMap<>());
+        entries.put(key.key, stored);
+        // An invalidation that arrived while storing removes the entry again.
+        invalidated = invalidatedAt.get(key.tenant);
+        if (invalidated != null && invalidated - lookedUpAt >= 0) {
+            entries.remove(key.key, stored);
+            return false;
+        }
+        return true;
+    }
+
+    private int localSize() {
+        int size = 0;
+        for (Map<String, Local> entries : local.values()) {
+            size += entries.size();
+        }
+        return size;
+    }
+
+    /**
+     * Splits a URL into its tenant and a cache key (the URL with the token value removed), or returns null
+     * when caching is off or the URL carries no token.
+     */
+    private Key key(String url) {
+        if (!enabled) {
+            return null;
+        }
+        Matcher token = ACCESS_TOKEN.matcher(url);
+        if (!token.find()) {
+            return null;
+        }
+        return new Key(tenant(token.group(1)), url.substring(0, token.start(1)) + url.substring(token.end(1)));
+    }
+
+    private static String tenant(String accessToken) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(accessToken.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Result of {@link #getShared}.
+     *
+     * @param response   The cached response, or null on a miss.
+     * @param generation The tenant's level-2 generation seen by the lookup.
+     * @param lookedUpAt When the lookup started (System.nanoTime()).
+     */
+    public record Lookup(ResponseEntity<String> response, long generation, long lookedUpAt) {
+    }
+
+    private record Key(String tenant, String key) {
+    }
+
+    private record Local(ResponseEntity<String> response, long expiresAt) {
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.CalanderCanvas;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * CanvasSyncService:
+ * Crawls Canvas and applies the result to the CanvasDataset.
+ *
+ * Only one sync runs at a time: a caller that asks for a sync while one is in flight waits for that one
+ * instead of starting a second crawl. The crawl itself runs in the background without a request deadline,
+ * so whoever started it does not cut it short for the others; each caller only stops waiting when its own
+ * deadline passes. Endpoints that only need reasonably fresh data use
+ * {@link #syncIfStale()}, which reuses the last sync for {@code canvas.sync.max-age}.
+ *
+ * A background sync also runs every {@code canvas.sync.interval}, so changes in Canvas reach the
+ * dataset listeners (and through them the push notifications) without anyone pressing refresh.
+ */
+@Service
+public class CanvasSyncService {
+
+    // Service that performs the actual Canvas crawl.
+    private final CanvasAPIService canvasService;
+
+    // The versioned dataset the crawl results are applied to.
+    private final CanvasDataset dataset;
+
+    // How long a completed sync is considered fresh enough for syncIfStale().
+    private final Duration maxAge;
+
+    // Executor the crawl runs on, away from the deadline of the request that started it.
+    private final AsyncTaskExecutor executor;
+
+    // The sync currently running, or null; guarded by this.
+    private CompletableFuture<DatasetChange> inFlight;
+
+    // When the last complete sync finished, or null if none has.
+    private volatile Instant lastSync;
+
+    public CanvasSyncService(CanvasAPIService canvasService, CanvasDataset dataset,
+                             @Value("${canvas.sync.max-age:60s}") Duration maxAge,
+                             @Qualifier("applicationTaskExecutor") AsyncTaskExecutor executor) {
+        this.canvasService = canvasService;
+        this.dataset = dataset;
+        this.maxAge = maxAge;
+        this.executor = executor;
+    }
+
+    /**
+     * Crawls Canvas and applies the result, or waits for the sync already in progress.
+     *
+     * @return The change applied by the sync.
+     */
+    public DatasetChange sync() {
+        CompletableFuture<DatasetChange> run;
+        synchronized (this) {
+            if (inFlight == null) {
+                inFlight = new CompletableFuture<>();
+                startCrawl(inFlight);
+            }
+            run = inFlight;
+        }
+        return awaitWithinDeadline(run);
+    }
+
+    /**
+     * Runs the crawl on the executor and completes the given future with the change it applied.
+     * Only a crawl that reached every scope counts as fresh for syncIfStale().
+     */
+    private void startCrawl(CompletableFuture<DatasetChange> run) {
+        try {
+            executor.execute(() -> {
+                try {
+                    CanvasAPIService.ItemCrawl crawl = canvasService.crawlItems();
+                    DatasetChange change = dataset.apply(crawl.items(), crawl.incompleteScopes());
+                    if (crawl.incompleteScopes().isEmpty()) {
+                        lastSync = Instant.now();
+                    }
+                    finish(run, change, null);
+                } catch (RuntimeException e) {
+                    finish(run, null, e);
+                }
+            });
+        } catch (RuntimeException e) {
+            // The executor rejected the crawl (e.g. during shutdown).
+            finish(run, null, e);
+        }
+    }
+
+    private void finish(CompletableFuture<DatasetChange> run, DatasetChange change, RuntimeException failure) {
+        synchronized (this) {
+            inFlight = null;
+        }
+        if (failure != null) {
+            run.completeExceptionally(failure);
+        } else {
+            run.complete(change);
+        }
+    }
+
+    /**
+     * Waits for a sync, but no longer than the current request's deadline: a request that joins a long
+     * background sync gives up when its budget runs out instead of waiting for the whole crawl.
+     */
+    private static DatasetChange awaitWithinDeadline(CompletableFuture<DatasetChange> run) {
+        RequestDeadline deadline = RequestDeadline.current();
+        if (deadline == null || run.isDone()) {
+            return run.join();
+        }
+        try {
+            return run.get(Math.max(0, deadline.remainingMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            deadline.markIncomplete();
+            throw new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "Canvas sync did not finish within the request deadline");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Syncs with fresh data: the cached Canvas responses are dropped on every instance first, so the crawl
+     * reads Canvas rather than the response cache. Used when the user asks for a refresh.
+     *
+     * @return The change applied by the sync.
+     */
+    public DatasetChange refresh() {
+        canvasService.invalidateCache();
+        return sync();
+    }
+
+    /**
+     * Syncs only if no complete sync has finished within {@code canvas.sync.max-age}.
+     */
+    public void syncIfStale() {
+        Instant last = lastSync;
+        if (last == null || last.plus(maxAge).isBefore(Instant.now())) {
+            sync();
+        }
+    }
+
+    /**
+     * Periodic background sync. Failures are logged and retried on the next run.
+     */
+    @Scheduled(initialDelayString = "${canvas.sync.interval:5m}", fixedDelayString = "${canvas.sync.interval:5m}")
+    public void scheduledSync() {
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            System.err.println("Scheduled Canvas sync failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.CalanderCanvas;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * CanvasWarmup:
+ * Starts the first Canvas crawl as soon as the application's beans exist, in the background, so it overlaps
+ * with the rest of startup (web server start, Swing window) instead of waiting for the first request.
+ *
+ * The rest of the context is lazily initialized (spring.main.lazy-initialization), so this bean is marked
+ * non-lazy; it pulls in only what the crawl needs. A request that arrives while the crawl is running joins it
+ * (see CanvasSyncService), so the desktop client's first load returns as soon as the crawl is done.
+ */
+@Component
+@Lazy(false)
+public class CanvasWarmup implements SmartInitializingSingleton {
+
+    // Service whose sync is started early.
+    private final CanvasSyncService syncService;
+
+    // Executor the warm-up crawl runs on.
+    private final AsyncTaskExecutor executor;
+
+    // Used to skip the warm-up when there is no key, or during a CDS/AOT training run.
+    private final Environment environment;
+
+    @Value("${api.key}")
+    private String CanvasAPIkey;
+
+    public CanvasWarmup(CanvasSyncService syncService,
+                        @Qualifier("applicationTaskExecutor") AsyncTaskExecutor executor,
+                        Environment environment) {
+        this.syncService = syncService;
+        this.executor = executor;
+        this.environment = environment;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        // Nothing to crawl without a key; spring.context.exit marks a training run that exits right after refresh.
+        if (CanvasAPIkey == null || CanvasAPIkey.isBlank() || environment.containsProperty("spring.context.exit")) {
+            return;
+        }
+
+        executor.execute(() -> {
+            try {
+                syncService.sync();
+            } catch (RuntimeException e) {
+                System.err.println("Warm-up Canvas sync failed: " + e.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.CalanderCanvas;
+
+import java.util.List;
+
+/**
+ * ChangeFeed:
+ * Response of GET /changes. A client remembers {@code version} and sends it back as {@code since}
+ * on its next request to receive only what changed in between.
+ *
+ * @param version The dataset version this feed brings the client up to.
+ * @param full    true if the client's version was too old (or 0) and {@code upserts} is the whole dataset;
+ *                the client should then drop what it has before applying.
+ * @param upserts Items that were added or changed since the requested version.
+ * @param removed Ids of items that were removed since the requested version.
+ */
+public record ChangeFeed(long version, boolean full, List<CanvasItem> upserts, List<String> removed) {
+}
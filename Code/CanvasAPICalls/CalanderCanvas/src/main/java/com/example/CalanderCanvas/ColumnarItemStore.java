@@ -0,0 +1,394 @@
+package com.example.CalanderCanvas;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * ColumnarItemStore:
+ * The items of one tenant (one Canvas user), stored column by column in primitive arrays instead of one
+ * CanvasItem object per item.
+ *
+ * Row r of the store is one item: types[r], canvasIds[r] (the number in "assignment:123"), dueAt[r] in epoch
+ * seconds, pointsPossible[r] and pointsEarned[r] (NaN for none), versions[r], and the course id, course
+ * name, name and description as ids into a StringDictionary, which stores every distinct string once (and
+ * optionally off-heap). An item costs about 65 bytes of columns plus its share of the dictionary, instead
+ * of a CanvasItem with its boxed Doubles, Instant and Strings.
+ *
+ * Every item has a key, a long derived from its id alone (see {@link #keyOf}), and items are found by key
+ * through a KeyTable. Rows keep insertion order; a removed row is marked dead and the columns are compacted
+ * once dead rows make up a quarter of the store, which also rebuilds the dictionary without strings no
+ * longer used. Compaction renumbers rows but never changes keys, so the derived indexes hold keys rather
+ * than rows or CanvasItem objects and decode them here when they answer a query.
+ *
+ * CanvasItem objects are only created when items are read (a diff, a snapshot); checking whether a crawled
+ * item changed compares it with its row without decoding anything. Due dates are kept to the second, which
+ * is the precision Canvas uses. Not thread-safe: CanvasDataset guards it.
+ */
+public class ColumnarItemStore {
+
+    // Marks a dead row in types.
+    private static final byte DEAD = -1;
+
+    // Marks an item whose id does not have the "type:number" form; its id is kept in irregularIds.
+    private static final long IRREGULAR = -1;
+
+    // Marks a missing due date.
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private static final CanvasItem.Type[] TYPES = CanvasItem.Type.values();
+
+    // Id prefix of each type, e.g. "assignment:".
+    private static final String[] PREFIXES = new String[TYPES.length];
+    static {
+        for (CanvasItem.Type type : TYPES) {
+            PREFIXES[type.ordinal()] = type.name().toLowerCase(Locale.ROOT) + ":";
+        }
+    }
+
+    // Columns; the first `rows` entries are in use.
+    private byte[] types;
+    private long[] canvasIds;
+    private int[] courseIds;
+    private int[] courseNames;
+    private int[] names;
+    private int[] descriptions;
+    private long[] dueAt;
+    private double[] pointsPossible;
+    private double[] pointsEarned;
+    private long[] versions;
+    private int rows;
+    private int liveRows;
+
+    // Strings of the string columns.
+    private StringDictionary strings;
+
+    // Row of each regular id's key.
+    private KeyTable rowsByKey;
+
+    // Ids, and rows by id, of items with irregular ids (none in practice; Canvas ids are numeric).
+    private final Map<Integer, String> irregularIds = new HashMap<>();
+    private final Map<String, Integer> irregularRows = new HashMap<>();
+
+    // Whether the dictionary is off-heap.
+    private final boolean offHeap;
+
+    public ColumnarItemStore(boolean offHeap) {
+        this.offHeap = offHeap;
+        this.strings = new StringDictionary(offHeap);
+        allocate(16);
+    }
+
+    /**
+     * @return The number of items.
+     */
+    public int size() {
+        return liveRows;
+    }
+
+    /**
+     * @return The number of rows, live or dead; valid rows are 0 to rowCount() - 1.
+     */
+    public int rowCount() {
+        return rows;
+    }
+
+    /**
+     * @return Whether the row holds an item (rather than a removed one).
+     */
+    public boolean isLive(int row) {
+        return types[row] != DEAD;
+    }
+
+    /**
+     * Returns the key of an item id: (number << 2) | type for a regular id such as "assignment:123", so keys
+     * of regular ids are unique; and a negative 64-bit hash of the id for any other id (none in practice;
+     * Canvas ids are numeric).
+     */
+    public static long keyOf(String id) {
+        long key = key(id);
+        if (key != IRREGULAR) {
+            return key;
+        }
+        // FNV-1a.
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            hash = (hash ^ id.charAt(i)) * 0x100000001b3L;
+        }
+        return hash | Long.MIN_VALUE;
+    }
+
+    /**
+     * @return The row of the item with the given id, or -1.
+     */
+    public int find(String id) {
+        long key = key(id);
+        if (key == IRREGULAR) {
+            Integer row = irregularRows.get(id);
+            return row != null ? row : -1;
+        }
+        return rowsByKey.get(key);
+    }
+
+    /**
+     * @return The row of the item with the given key (see {@link #keyOf}), or -1.
+     */
+    public int find(long key) {
+        if (key >= 0) {
+            return rowsByKey.get(key);
+        }
+        for (Map.Entry<String, Integer> irregular : irregularRows.entrySet()) {
+            if (keyOf(irregular.getKey()) == key) {
+                return irregular.getValue();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return The key of the item in a row.
+     */
+    public long key(int row) {
+        return canvasIds[row] == IRREGULAR ? keyOf(irregularIds.get(row)) : (canvasIds[row] << 2) | types[row];
+    }
+
+    /**
+     * Decodes a row into a CanvasItem.
+     */
+    public CanvasItem get(int row) {
+        return new CanvasItem(
+                id(row),
+                TYPES[types[row]],
+                strings.get(courseIds[row]),
+                strings.get(courseNames[row]),
+                strings.get(names[row]),
+                dueAt[row] == NO_DATE ? null : Instant.ofEpochSecond(dueAt[row]),
+                Double.isNaN(pointsPossible[row]) ? null : pointsPossible[row],
+                Double.isNaN(pointsEarned[row]) ? null : pointsEarned[row],
+                strings.get(descriptions[row]));
+    }
+
+    /**
+     * @return The id of the item in a row.
+     */
+    public String id(int row) {
+        return canvasIds[row] == IRREGULAR
+                ? irregularIds.get(row)
+                : PREFIXES[types[row]] + canvasIds[row];
+    }
+
+    /**
+     * @return The version the item in a row last changed at.
+     */
+    public long version(int row) {
+        return versions[row];
+    }
+
+    /**
+     * @return The sync scope of the item in a row (see {@link CanvasItem#syncScope()}).
+     */
+    public String syncScope(int row) {
+        return TYPES[types[row]] == CanvasItem.Type.EVENT ? CanvasItem.EVENTS_SCOPE : strings.get(courseIds[row]);
+    }
+
+    /**
+     * Checks whether a row holds exactly the given item, without decoding the row.
+     */
+    public boolean matches(int row, CanvasItem item) {
+        return types[row] == item.type().ordinal()
+                && dueAt[row] == seconds(item.dueAt())
+                && Double.compare(pointsPossible[row], points(item.pointsPossible())) == 0
+                && Double.compare(pointsEarned[row], points(item.pointsEarned())) == 0
+                && courseIds[row] == strings.find(item.courseId())
+                && courseNames[row] == strings.find(item.courseName())
+                && names[row] == strings.find(item.name())
+                && descriptions[row] == strings.find(item.description())
+                && Objects.equals(id(row), item.id());
+    }
+
+    /**
+     * Appends an item.
+     *
+     * @return Its row.
+     */
+    public int add(CanvasItem item, long version) {
+        if (rows == types.length) {
+            // Grow by half rather than double: the columns are most of the store, so slack is costly.
+            grow(types.length + (types.length >> 1));
+        }
+        int row = rows++;
+        liveRows++;
+        set(row, item, version);
+        index(item.id(), row);
+        return row;
+    }
+
+    /**
+     * Replaces the item in a row (which must have the same id).
+     */
+    public void set(int row, CanvasItem item, long version) {
+        types[row] = (byte) item.type().ordinal();
+        long key = key(item.id());
+        canvasIds[row] = key == IRREGULAR ? IRREGULAR : key >>> 2;
+        if (key == IRREGULAR) {
+            irregularIds.put(row, item.id());
+        }
+        courseIds[row] = strings.intern(item.courseId());
+        courseNames[row] = strings.intern(item.courseName());
+        names[row] = strings.intern(item.name());
+        descriptions[row] = strings.intern(item.description());
+        dueAt[row] = seconds(item.dueAt());
+        pointsPossible[row] = points(item.pointsPossible());
+        pointsEarned[row] = points(item.pointsEarned());
+        versions[row] = version;
+    }
+
+    /**
+     * Removes the item in a row. Rows stay valid until {@link #compactIfNeeded()}.
+     */
+    public void remove(int row) {
+        String id = id(row);
+        long key = key(id);
+        if (key == IRREGULAR) {
+            irregularRows.remove(id);
+            irregularIds.remove(row);
+        } else {
+            rowsByKey.remove(key);
+        }
+        types[row] = DEAD;
+        liveRows--;
+    }
+
+    /**
+     * Drops dead rows (renumbering the others, in order) once they make up a quarter of the store.
+     */
+    public void compactIfNeeded() {
+        if (rows - liveRows <= Math.max(16, rows / 4)) {
+            return;
+        }
+        ColumnarItemStore compacted = new ColumnarItemStore(offHeap);
+        compacted.grow(Math.max(16, liveRows));
+        for (int row = 0; row < rows; row++) {
+            if (isLive(row)) {
+                compacted.add(get(row), versions[row]);
+            }
+        }
+        types = compacted.types;
+        canvasIds = compacted.canvasIds;
+        courseIds = compacted.courseIds;
+        courseNames = compacted.courseNames;
+        names = compacted.names;
+        descriptions = compacted.descriptions;
+        dueAt = compacted.dueAt;
+        pointsPossible = compacted.pointsPossible;
+        pointsEarned = compacted.pointsEarned;
+        versions = compacted.versions;
+        rows = compacted.rows;
+        liveRows = compacted.liveRows;
+        strings = compacted.strings;
+        rowsByKey = compacted.rowsByKey;
+        irregularIds.clear();
+        irregularIds.putAll(compacted.irregularIds);
+        irregularRows.clear();
+        irregularRows.putAll(compacted.irregularRows);
+    }
+
+    /**
+     * @return The memory held by the columns, the key table and the dictionary (plus object headers).
+     */
+    public long estimatedBytes() {
+        long capacity = types.length;
+        // Per row of capacity: type 1, canvas id 8, four string ids 16, due date 8, two points 16, version 8.
+        long columns = capacity * (1 + 8 + 16 + 8 + 16 + 8) + 10 * 16;
+        return columns + rowsByKey.estimatedBytes() + strings.estimatedBytes() + 64;
+    }
+
+    /**
+     * @return Whether the strings are stored off-heap.
+     */
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * @return The number of distinct strings in the dictionary.
+     */
+    public int distinctStrings() {
+        return strings.size();
+    }
+
+    /**
+     * Encodes a regular id ("assignment:123") as (123 << 2) | type, or returns IRREGULAR.
+     */
+    private static long key(String id) {
+        for (int type = 0; type < PREFIXES.length; type++) {
+            if (id.startsWith(PREFIXES[type])) {
+                String number = id.substring(PREFIXES[type].length());
+                // Only plain numbers without leading zeros round-trip through a long.
+                if (number.isEmpty() || number.length() > 18 || (number.length() > 1 && number.charAt(0) == '0')) {
+                    return IRREGULAR;
+                }
+                long value = 0;
+                for (int i = 0; i < number.length(); i++) {
+                    char c = number.charAt(i);
+                    if (c < '0' || c > '9') {
+                        return IRREGULAR;
+                    }
+                    value = value * 10 + (c - '0');
+                }
+                return (value << 2) | type;
+            }
+        }
+        return IRREGULAR;
+    }
+
+    private void index(String id, int row) {
+        long key = key(id);
+        if (key == IRREGULAR) {
+            irregularRows.put(id, row);
+        } else {
+            rowsByKey.put(key, row);
+        }
+    }
+
+    private void allocate(int capacity) {
+        types = new byte[capacity];
+        canvasIds = new long[capacity];
+        courseIds = new int[capacity];
+        courseNames = new int[capacity];
+        names = new int[capacity];
+        descriptions = new int[capacity];
+        dueAt = new long[capacity];
+        pointsPossible = new double[capacity];
+        pointsEarned = new double[capacity];
+        versions = new long[capacity];
+        rowsByKey = new KeyTable(capacity);
+    }
+
+    private void grow(int capacity) {
+        if (capacity <= types.length) {
+            return;
+        }
+        types = Arrays.copyOf(types, capacity);
+        canvasIds = Arrays.copyOf(canvasIds, capacity);
+        courseIds = Arrays.copyOf(courseIds, capacity);
+        courseNames = Arrays.copyOf(courseNames, capacity);
+        names = Arrays.copyOf(names, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+        dueAt = Arrays.copyOf(dueAt, capacity);
+        pointsPossible = Arrays.copyOf(pointsPossible, capacity);
+        pointsEarned = Arrays.copyOf(pointsEarned, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+    }
+
+    private static long seconds(Instant instant) {
+        return instant == null ? NO_DATE : instant.getEpochSecond();
+    }
+
+    private static double points(Double points) {
+        return points == null ? Double.NaN : points;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.CalanderCanvas;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * ConsistentHashRing:
+ * Routes keys (tenants) to nodes so that adding or removing a node only moves the keys of that node,
+ * rather than reshuffling almost every key as hash-modulo-N would.
+ *
+ * Every node is placed on the ring at several points (virtual nodes) to even out the share each one gets.
+ * A key belongs to the first node point at or after its own hash, wrapping around.
+ *
+ * @param <T> The node type.
+ */
+public class ConsistentHashRing<T> {
+
+    // Points on the ring -> node.
+    private final TreeMap<Long, T> ring = new TreeMap<>();
+
+    /**
+     * @param nodes        The nodes to place on the ring.
+     * @param name         A stable name per node (e.g. host:port), which decides its points.
+     * @param virtualNodes Points per node.
+     */
+    public ConsistentHashRing(List<T> nodes, Function<T, String> name, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("A hash ring needs at least one node");
+        }
+        for (T node : nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(name.apply(node) + "#" + i), node);
+            }
+        }
+    }
+
+    /**
+     * @return The node that owns the given key.
+     */
+    public T route(String key) {
+        Map.Entry<Long, T> owner = ring.ceilingEntry(hash(key));
+        return owner != null ? owner.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * Hashes a string to a ring position with MD5, which spreads similar strings evenly.
+     */
+    private static long hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (digest[i] & 0xff);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available", e);
+        }
+    }
+}
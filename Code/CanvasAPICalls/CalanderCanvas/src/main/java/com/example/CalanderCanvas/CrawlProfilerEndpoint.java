@@ -0,0 +1,248 @@
+package com.example.CalanderCanvas;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * CrawlProfilerEndpoint:
+ * Actuator endpoint (POST /actuator/crawlprofile) that profiles one crawl of the user's Canvas data and
+ * reports where the time went.
+ *
+ * It starts a Java Flight Recorder recording of the CanvasEvents only (no JDK events, no stack traces), runs
+ * the crawl that /items and the sync use under a trace of its own, serializes its result as /items would, and
+ * summarizes the recorded events of that trace per phase: Canvas fetches (and hedges), JSON parsing, building
+ * entries and items, and per-course crawls. The recording is JVM-wide, so the events of requests served
+ * meanwhile are recorded too; they carry other traces and are left out. A fetch this crawl shares with
+ * another caller's crawl carries that caller's trace and so is left out as well. The recording is bounded by
+ * canvas.profile.max-duration and canvas.profile.max-size, and only one profile runs at a time.
+ *
+ * The endpoint is unauthenticated and is not exposed by default (see application.properties). Send it with
+ * Content-Type: application/json; a body of {"cold": true} drops the cached Canvas responses first, so the
+ * profile includes real Canvas latency. That affects every instance, so it is refused (403) unless
+ * canvas.profile.allow-cold is set.
+ * Phase totals add up the time of every event, and fetches run concurrently, so they can exceed the wall time.
+ */
+@Component
+@Endpoint(id = "crawlprofile")
+public class CrawlProfilerEndpoint {
+
+    // JFR event name of each phase.
+    private static final Map<String, String> PHASES = Map.of(
+            "canvas.Fetch", "fetch",
+            "canvas.Parse", "parse",
+            "canvas.Build", "build",
+            "canvas.CourseCrawl", "courseCrawl");
+
+    // How many of the slowest fetches are listed.
+    private static final int SLOWEST_FETCHES = 5;
+
+    // Service whose crawl is profiled.
+    private final CanvasAPIService canvasService;
+
+    // Mapper used to serialize the crawl result as the controller would.
+    private final ObjectMapper objectMapper;
+
+    // Bounds on one recording.
+    private final Duration maxDuration;
+    private final DataSize maxSize;
+
+    // Whether {"cold": true} may drop the cached Canvas responses.
+    private final boolean allowCold;
+
+    // Set while a profile runs.
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public CrawlProfilerEndpoint(CanvasAPIService canvasService, ObjectMapper objectMapper,
+                                 @Value("${canvas.profile.max-duration:60s}") Duration maxDuration,
+                                 @Value("${canvas.profile.max-size:20MB}") DataSize maxSize,
+                                 @Value("${canvas.profile.allow-cold:false}") boolean allowCold) {
+        this.canvasService = canvasService;
+        this.objectMapper = objectMapper;
+        this.maxDuration = maxDuration;
+        this.maxSize = maxSize;
+        this.allowCold = allowCold;
+    }
+
+    /**
+     * Profiles one crawl.
+     *
+     * @param cold Whether to drop the cached Canvas responses first.
+     * @return The per-phase breakdown, 403 Forbidden for a cold profile that is not allowed, or 409 Conflict if
+     *         a profile is already running.
+     */
+    @WriteOperation
+    public WebEndpointResponse<CrawlProfile> profile(@Nullable Boolean cold) {
+        if (Boolean.TRUE.equals(cold) && !allowCold) {
+            return new WebEndpointResponse<>(HttpStatus.FORBIDDEN.value());
+        }
+        if (!running.compareAndSet(false, true)) {
+            return new WebEndpointResponse<>(HttpStatus.CONFLICT.value());
+        }
+        Path file = null;
+        try (Recording recording = new Recording()) {
+            for (String event : PHASES.keySet()) {
+                recording.enable(event).withoutStackTrace();
+            }
+            recording.setName("crawlprofile");
+            recording.setDuration(maxDuration);
+            recording.setMaxSize(maxSize.toBytes());
+            recording.setToDisk(true);
+            recording.start();
+
+            if (Boolean.TRUE.equals(cold)) {
+                canvasService.invalidateCache();
+            }
+            String trace = CanvasEvents.startTrace("crawlprofile");
+            long start = System.nanoTime();
+            CanvasAPIService.ItemCrawl crawl;
+            try {
+                crawl = canvasService.crawlItems();
+            } finally {
+                CanvasEvents.clearTrace();
+            }
+            long crawled = System.nanoTime();
+            objectMapper.writeValue(OutputStream.nullOutputStream(), crawl.items());
+            long serialized = System.nanoTime();
+
+            // A recording that hit max-duration has stopped on its own and misses the end of the crawl.
+            boolean truncated = recording.getState() != RecordingState.RUNNING;
+            if (!truncated) {
+                recording.stop();
+            }
+            file = Files.createTempFile("crawlprofile", ".jfr");
+            recording.dump(file);
+            return new WebEndpointResponse<>(summarize(RecordingFile.readAllEvents(file), trace, crawl,
+                    millis(serialized - start), millis(crawled - start), millis(serialized - crawled), truncated));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the crawl recording", e);
+        } finally {
+            running.set(false);
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    System.err.println("Failed to delete crawl recording " + file);
+                }
+            }
+        }
+    }
+
+    private static CrawlProfile summarize(List<RecordedEvent> events, String trace, CanvasAPIService.ItemCrawl crawl,
+                                          double wallMillis, double crawlMillis, double serializeMillis, boolean truncated) {
+        Map<String, PhaseTotals> totals = new LinkedHashMap<>();
+        for (String phase : List.of("fetch", "hedge", "parse", "build", "courseCrawl")) {
+            totals.put(phase, new PhaseTotals());
+        }
+        List<FetchTiming> fetches = new ArrayList<>();
+        List<CourseTiming> courses = new ArrayList<>();
+
+        for (RecordedEvent event : events) {
+            String phase = PHASES.get(event.getEventType().getName());
+            if (phase == null || !trace.equals(event.getString("trace"))) {
+                continue;
+            }
+            double millis = millis(event.getDuration().toNanos());
+            long chars = 0;
+            if (phase.equals("fetch")) {
+                chars = event.getLong("chars");
+                if (event.getBoolean("hedge")) {
+                    phase = "hedge";
+                }
+                fetches.add(new FetchTiming(event.getString("path"), event.getInt("status"), event.getBoolean("hedge"), millis));
+            } else if (phase.equals("parse")) {
+                chars = event.getLong("chars");
+            } else if (phase.equals("courseCrawl")) {
+                courses.add(new CourseTiming(event.getString("courseId"), event.getInt("items"), event.getBoolean("complete"), millis));
+            }
+            totals.get(phase).add(millis, chars);
+        }
+
+        Map<String, Phase> phases = new LinkedHashMap<>();
+        totals.forEach((phase, total) -> phases.put(phase, total.toPhase()));
+        fetches.sort(Comparator.comparingDouble(FetchTiming::millis).reversed());
+        courses.sort(Comparator.comparingDouble(CourseTiming::millis).reversed());
+        return new CrawlProfile(wallMillis, crawlMillis, serializeMillis, crawl.items().size(), crawl.incompleteScopes(),
+                truncated, phases, courses, fetches.subList(0, Math.min(SLOWEST_FETCHES, fetches.size())));
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+
+    /**
+     * Result of a profile.
+     *
+     * @param wallMillis       Time from the start of the crawl to the end of serialization.
+     * @param crawlMillis      Time the crawl took.
+     * @param serializeMillis  Time serializing the crawled items as JSON took.
+     * @param items            Number of items crawled.
+     * @param incompleteScopes Courses (or the calendar) whose crawl failed partway.
+     * @param truncated        Whether the recording stopped at canvas.profile.max-duration before the crawl ended.
+     * @param phases           Totals per phase: fetch, hedge, parse, build and courseCrawl.
+     * @param courses          Per-course crawl times, slowest first.
+     * @param slowestFetches   The slowest Canvas fetches.
+     */
+    public record CrawlProfile(double wallMillis, double crawlMillis, double serializeMillis, int items,
+                               Set<String> incompleteScopes, boolean truncated, Map<String, Phase> phases,
+                               List<CourseTiming> courses, List<FetchTiming> slowestFetches) {
+    }
+
+    /**
+     * Totals of one phase: how many events, their summed and longest duration, and the characters of the
+     * bodies they handled (fetch, hedge and parse only).
+     */
+    public record Phase(int count, double totalMillis, double maxMillis, long chars) {
+    }
+
+    public record CourseTiming(String courseId, int items, boolean complete, double millis) {
+    }
+
+    public record FetchTiming(String path, int status, boolean hedge, double millis) {
+    }
+
+    /**
+     * Running totals of one phase while the events are read.
+     */
+    private static final class PhaseTotals {
+        private int count;
+        private double totalMillis;
+        private double maxMillis;
+        private long chars;
+
+        private void add(double millis, long eventChars) {
+            count++;
+            totalMillis += millis;
+            maxMillis = Math.max(maxMillis, millis);
+            chars += eventChars;
+        }
+
+        private Phase toPhase() {
+            return new Phase(count, Math.round(totalMillis * 100) / 100.0, maxMillis, chars);
+        }
+    }
+}
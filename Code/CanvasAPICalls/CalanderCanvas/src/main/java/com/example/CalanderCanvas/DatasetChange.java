@@ -0,0 +1,33 @@
+package com.example.CalanderCanvas;
+
+import java.util.List;
+
+/**
+ * DatasetChange:
+ * Everything one sync changed in the CanvasDataset, handed to every DatasetListener.
+ * Updates keep both the previous and the new item so listeners can tell what moved
+ * (for example a due date change or a newly posted grade).
+ *
+ * @param version The dataset version the changes were stamped with.
+ * @param added   Items that did not exist before this sync.
+ * @param updated Items whose content changed.
+ * @param removed Items that disappeared from Canvas, as they were before removal.
+ */
+public record DatasetChange(long version, List<CanvasItem> added, List<Update> updated, List<CanvasItem> removed) {
+
+    /**
+     * @return true if the sync did not change anything.
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && updated.isEmpty() && removed.isEmpty();
+    }
+
+    /**
+     * One changed item.
+     *
+     * @param before The item as it was before the sync.
+     * @param after  The item as it is now.
+     */
+    public record Update(CanvasItem before, CanvasItem after) {
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.CalanderCanvas;
+
+/**
+ * DatasetListener:
+ * Implemented by beans that maintain a derived view of the CanvasDataset (indexes, notifications, etc.).
+ * Every listener bean is registered with the dataset automatically and is called once per sync that
+ * changed something, in version order, so a listener can stay up to date without rescanning the dataset.
+ * Implementations should be quick; they run on the syncing thread.
+ */
+public interface DatasetListener {
+
+    /**
+     * Called after the dataset applied a sync.
+     *
+     * @param change The items added, updated and removed by the sync.
+     */
+    void onDatasetChange(DatasetChange change);
+
+    /**
+     * @return The memory the listener's derived view holds, counted into the tenant's size in
+     *         {@link CanvasDataset#getStats()}; 0 for listeners that keep nothing per item.
+     */
+    default long estimatedBytes() {
+        return 0;
+    }
+}
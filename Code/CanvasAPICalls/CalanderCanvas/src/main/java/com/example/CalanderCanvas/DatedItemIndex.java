@@ -0,0 +1,117 @@
+package com.example.CalanderCanvas;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * DatedItemIndex:
+ * Base of the indexes that bucket dated items by calendar day (DeadlineIndex, CalendarIndex).
+ *
+ * It applies each sync's removed, updated and added items under a write lock and turns due (or start)
+ * instants into days in the zone given by canvas.zone (the server's default zone if unset). A removal or
+ * update carries the item as it was before the sync, which is the version that was indexed, so the entry it
+ * replaces is found from the change alone. Subclasses keep item keys (see {@link ColumnarItemStore#keyOf})
+ * in their own structures in {@link #added} and {@link #removed}, never the items, and decode the keys they
+ * return through {@link CanvasDataset#read}, taking {@link #lock}'s read lock inside it.
+ */
+public abstract class DatedItemIndex implements DatasetListener {
+
+    // Written by onDatasetChange, read by the subclasses' queries.
+    protected final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Where the indexed keys are decoded.
+    protected final CanvasDataset dataset;
+
+    // Zone used to turn instants into calendar days.
+    private final ZoneId zone;
+
+    /**
+     * @param dataset The dataset the index is a listener of.
+     * @param zone    The canvas.zone setting; blank for the server's default zone.
+     */
+    protected DatedItemIndex(CanvasDataset dataset, String zone) {
+        this.dataset = dataset;
+        this.zone = zone.isBlank() ? ZoneId.systemDefault() : ZoneId.of(zone);
+    }
+
+    @Override
+    public void onDatasetChange(DatasetChange change) {
+        lock.writeLock().lock();
+        try {
+            for (CanvasItem item : change.removed()) {
+                remove(item, change.version());
+            }
+            for (DatasetChange.Update update : change.updated()) {
+                remove(update.before(), change.version());
+                add(update.after(), change.version());
+            }
+            for (CanvasItem item : change.added()) {
+                add(item, change.version());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return The zone days and weeks are computed in.
+     */
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    /**
+     * @return Whether the index holds this item; only items with a due (or start) date are offered.
+     */
+    protected abstract boolean accepts(CanvasItem item);
+
+    /**
+     * Adds an accepted item to the subclass's structures. Called with the write lock held.
+     *
+     * @param key     The item's key.
+     * @param day     The item's day in the index's zone.
+     * @param version The dataset version of the change.
+     */
+    protected abstract void added(CanvasItem item, long key, LocalDate day, long version);
+
+    /**
+     * Removes a previously added item (the version that was added) from the subclass's structures.
+     * Called with the write lock held.
+     *
+     * @param key     The item's key.
+     * @param day     The day it was added on.
+     * @param version The dataset version of the change.
+     */
+    protected abstract void removed(CanvasItem item, long key, LocalDate day, long version);
+
+    /**
+     * @return The Monday of the week containing the given day.
+     */
+    protected static LocalDate weekStart(LocalDate date) {
+        return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    /**
+     * @return The day of an instant in the index's zone.
+     */
+    protected LocalDate dayOf(Instant instant) {
+        return instant.atZone(zone).toLocalDate();
+    }
+
+    private void add(CanvasItem item, long version) {
+        if (item.dueAt() != null && accepts(item)) {
+            added(item, ColumnarItemStore.keyOf(item.id()), dayOf(item.dueAt()), version);
+        }
+    }
+
+    private void remove(CanvasItem item, long version) {
+        if (item.dueAt() != null && accepts(item)) {
+            removed(item, ColumnarItemStore.keyOf(item.id()), dayOf(item.dueAt()), version);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.CalanderCanvas;
+
+import java.util.Arrays;
+
+/**
+ * DatedKeys:
+ * Item keys (see {@link ColumnarItemStore#keyOf}) ordered by due (or start) time, then key, in two parallel
+ * primitive arrays. DeadlineIndex and CalendarIndex keep one per day, so an item costs 16 bytes of index
+ * instead of a CanvasItem in a TreeSet, and a sorted insert only shifts the items of its own day.
+ *
+ * Times are epoch seconds, the precision ColumnarItemStore keeps. Not thread-safe: the owning index guards it.
+ */
+public class DatedKeys {
+
+    // The first `size` entries are in use, sorted by (due, key).
+    private long[] dues = new long[2];
+    private long[] keys = new long[2];
+    private int size;
+
+    /**
+     * Adds an entry, unless it is already there.
+     */
+    public void add(long due, long key) {
+        int at = indexOf(due, key);
+        if (at >= 0) {
+            return;
+        }
+        at = -at - 1;
+        if (size == dues.length) {
+            dues = Arrays.copyOf(dues, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+        System.arraycopy(dues, at, dues, at + 1, size - at);
+        System.arraycopy(keys, at, keys, at + 1, size - at);
+        dues[at] = due;
+        keys[at] = key;
+        size++;
+    }
+
+    /**
+     * Removes an entry, if present.
+     */
+    public void remove(long due, long key) {
+        int at = indexOf(due, key);
+        if (at < 0) {
+            return;
+        }
+        System.arraycopy(dues, at + 1, dues, at, size - at - 1);
+        System.arraycopy(keys, at + 1, keys, at, size - at - 1);
+        size--;
+    }
+
+    /**
+     * @return The number of entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The key of the i-th entry in order.
+     */
+    public long key(int i) {
+        return keys[i];
+    }
+
+    /**
+     * @return The position of the first entry due at or after the given time (size() if there is none).
+     */
+    public int ceiling(long due) {
+        int at = indexOf(due, Long.MIN_VALUE);
+        return at >= 0 ? at : -at - 1;
+    }
+
+    /**
+     * @return The memory held by the arrays (plus object headers).
+     */
+    public long estimatedBytes() {
+        return 16L * dues.length + 2 * 16 + 24;
+    }
+
+    /**
+     * Binary search for (due, key).
+     *
+     * @return Its position, or -(insertion point) - 1 if it is not there.
+     */
+    private int indexOf(long due, long key) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int order = dues[mid] != due ? Long.compare(dues[mid], due) : Long.compare(keys[mid], key);
+            if (order < 0) {
+                low = mid + 1;
+            } else if (order > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.CalanderCanvas;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * DeadlineIndex:
+ * Keeps the dated assignments and quizzes ordered by due date, with running totals per day and per week,
+ * so "what is due next" and "how heavy is this week" are answered without rescanning the dataset.
+ *
+ * The index is a DatedItemIndex, so each sync's added, updated and removed items adjust the days and the
+ * day/week totals in place. Each day keeps its items' keys in due-date order (DatedKeys); the items are
+ * decoded from the dataset only for the deadlines a query returns. Lookups are range queries on sorted trees
+ * (O(log n) plus the size of the answer). Calendar events are not deadlines and are left out.
+ *
+ * Days and weeks are in the zone given by canvas.zone (the server's default zone if unset); weeks start on Monday.
+ */
+@Component
+public class DeadlineIndex extends DatedItemIndex {
+
+    // Due items of each calendar day, by due date then key, with the day's running totals.
+    private final TreeMap<LocalDate, Totals> days = new TreeMap<>();
+
+    // Running totals per week (keyed by the week's Monday).
+    private final TreeMap<LocalDate, Totals> weeks = new TreeMap<>();
+
+    public DeadlineIndex(CanvasDataset dataset, @Value("${canvas.zone:}") String zone) {
+        super(dataset, zone);
+    }
+
+    /**
+     * Returns the next deadlines due at or after the given instant.
+     *
+     * @param from  The instant to start from (usually now).
+     * @param limit The maximum number of deadlines to return.
+     * @return Up to {@code limit} items in due-date order.
+     */
+    public List<CanvasItem> next(Instant from, int limit) {
+        // Due dates are kept to the second, so an item is due at or after `from` if its second is.
+        long fromSecond = from.getEpochSecond() + (from.getNano() > 0 ? 1 : 0);
+        return dataset.read(decode -> {
+            lock.readLock().lock();
+            try {
+                List<CanvasItem> next = new ArrayList<>();
+                for (Totals day : days.tailMap(dayOf(from), true).values()) {
+                    for (int i = day.items.ceiling(fromSecond); i < day.items.size() && next.size() < limit; i++) {
+                        CanvasItem item = decode.apply(day.items.key(i));
+                        if (item != null) {
+                            next.add(item);
+                        }
+                    }
+                    if (next.size() >= limit) {
+                        break;
+                    }
+                }
+                return next;
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Returns the workload per day between two dates (inclusive). Days without deadlines are omitted.
+     */
+    public List<Workload> daily(LocalDate from, LocalDate to) {
+        return range(days, from, to, false);
+    }
+
+    /**
+     * Returns the workload per week (Monday to Sunday) for the weeks touching the given dates.
+     * Weeks without deadlines are omitted.
+     */
+    public List<Workload> weekly(LocalDate from, LocalDate to) {
+        return range(weeks, weekStart(from), to, true);
+    }
+
+    /**
+     * Returns the days between two dates (inclusive) whose points at stake reach {@code minPoints}
+     * or whose number of deadlines reaches {@code minItems}.
+     */
+    public List<Workload> overloaded(LocalDate from, LocalDate to, double minPoints, int minItems) {
+        List<Workload> overloaded = new ArrayList<>();
+        for (Workload day : daily(from, to)) {
+            if (day.points() >= minPoints || day.items() >= minItems) {
+                overloaded.add(day);
+            }
+        }
+        return overloaded;
+    }
+
+    private List<Workload> range(TreeMap<LocalDate, Totals> buckets, LocalDate from, LocalDate to, boolean week) {
+        lock.readLock().lock();
+        try {
+            List<Workload> workloads = new ArrayList<>();
+            if (from.isAfter(to)) {
+                return workloads;
+            }
+            NavigableMap<LocalDate, Totals> range = buckets.subMap(from, true, to, true);
+            for (Map.Entry<LocalDate, Totals> entry : range.entrySet()) {
+                LocalDate start = entry.getKey();
+                Totals totals = entry.getValue();
+                workloads.add(new Workload(start, week ? start.plusDays(6) : start, totals.count, totals.points));
+            }
+            return workloads;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    protected boolean accepts(CanvasItem item) {
+        return item.type() != CanvasItem.Type.EVENT;
+    }
+
+    @Override
+    protected void added(CanvasItem item, long key, LocalDate day, long version) {
+        days.computeIfAbsent(day, d -> new Totals(new DatedKeys())).items.add(item.dueAt().getEpochSecond(), key);
+        adjust(item, day, 1);
+    }
+
+    @Override
+    protected void removed(CanvasItem item, long key, LocalDate day, long version) {
+        Totals totals = days.get(day);
+        if (totals != null) {
+            totals.items.remove(item.dueAt().getEpochSecond(), key);
+        }
+        adjust(item, day, -1);
+    }
+
+    /**
+     * Estimates the memory of the days and weeks: per bucket a TreeMap entry (40), a LocalDate (24) and the
+     * Totals (24), plus each day's keys.
+     */
+    @Override
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 88L * (days.size() + weeks.size());
+            for (Totals day : days.values()) {
+                bytes += day.items.estimatedBytes();
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds ({@code sign} = 1) or subtracts ({@code sign} = -1) an item from its day and week totals,
+     * dropping buckets that become empty.
+     */
+    private void adjust(CanvasItem item, LocalDate day, int sign) {
+        double points = item.pointsPossible() != null ? item.pointsPossible() : 0;
+        adjust(days, day, sign, points);
+        adjust(weeks, weekStart(day), sign, points);
+    }
+
+    private static void adjust(TreeMap<LocalDate, Totals> buckets, LocalDate key, int sign, double points) {
+        // Days are created by added() with their keys; weeks only keep totals.
+        Totals totals = buckets.computeIfAbsent(key, k -> new Totals(null));
+        totals.count += sign;
+        totals.points += sign * points;
+        if (totals.count == 0) {
+            buckets.remove(key);
+        }
+    }
+
+    /**
+     * Mutable running totals of one day or week; a day also keeps its items' keys (null for a week).
+     */
+    private static final class Totals {
+        private final DatedKeys items;
+        private int count;
+        private double points;
+
+        private Totals(DatedKeys items) {
+            this.items = items;
+        }
+    }
+
+    /**
+     * Workload of one day (start == end) or one week.
+     *
+     * @param start  First day of the bucket.
+     * @param end    Last day of the bucket.
+     * @param items  Number of assignments and quizzes due.
+     * @param points Total points possible at stake.
+     */
+    public record Workload(LocalDate start, LocalDate end, int items, double points) {
+    }
+}
@@ -0,0 +1,410 @@
+package com.example.CalanderCanvas;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * GradeBook:
+ * One course's grade, computed the way Canvas computes it from the course's assignment groups.
+ *
+ * - Each group's score is its earned points over its possible points, after the group's drop rules
+ *   (drop_lowest, drop_highest, never_drop) have removed the assignments that help (or hurt) the least.
+ * - With assignment group weights on, the course grade is the weighted average of the group scores,
+ *   scaled over the groups that have points; otherwise it is total earned over total possible points.
+ * - The current grade counts only graded assignments; the final grade counts ungraded ones as zero.
+ *   Excused assignments and assignments omitted from the final grade do not count at all.
+ *
+ * What-if scores replace an assignment's real score (or give an ungraded assignment one) until cleared.
+ * Each group keeps its point sums, so a what-if score only updates the sums of its own group (in constant
+ * time, or by re-running that group's drop rules if it has any) and then re-adds the group scores, rather
+ * than recomputing the whole course.
+ *
+ * Thread-safe: every method is synchronized.
+ */
+public class GradeBook {
+
+    private final String courseId;
+    private final String courseName;
+    private final boolean weighted;
+    private final Group[] groups;
+
+    // The groups as given, to build copies from.
+    private final List<GroupDefinition> definitions;
+
+    // Group index and row of every assignment, by id.
+    private final Map<String, int[]> positions = new HashMap<>();
+
+    // What-if scores in the order they were set.
+    private final Map<String, Double> whatIf = new LinkedHashMap<>();
+
+    /**
+     * @param courseId   The Canvas course id.
+     * @param courseName The course name.
+     * @param weighted   Whether the course applies assignment group weights.
+     * @param groups     The course's assignment groups with their assignments.
+     */
+    public GradeBook(String courseId, String courseName, boolean weighted, List<GroupDefinition> groups) {
+        this.courseId = courseId;
+        this.courseName = courseName;
+        this.weighted = weighted;
+        this.definitions = List.copyOf(groups);
+        this.groups = new Group[groups.size()];
+        for (int g = 0; g < this.groups.length; g++) {
+            this.groups[g] = new Group(groups.get(g));
+            for (int row = 0; row < this.groups[g].ids.length; row++) {
+                positions.put(this.groups[g].ids[row], new int[]{g, row});
+            }
+        }
+    }
+
+    /**
+     * @return The Canvas course id.
+     */
+    public String getCourseId() {
+        return courseId;
+    }
+
+    /**
+     * @return Whether the course has the given (counted) assignment, i.e. whether {@link #setWhatIf} accepts it.
+     */
+    public boolean hasAssignment(String assignmentId) {
+        return positions.containsKey(assignmentId);
+    }
+
+    /**
+     * @return A new grade book of the same course from real scores only, whose what-if scores can be set
+     *         without affecting this one.
+     */
+    public GradeBook copy() {
+        return new GradeBook(courseId, courseName, weighted, definitions);
+    }
+
+    /**
+     * Sets or clears the what-if score of one assignment and recomputes the grade.
+     *
+     * @param assignmentId The assignment's id ("assignment:123").
+     * @param score        The hypothetical score, or null to go back to the real one.
+     * @return false if the course has no such (counted) assignment.
+     */
+    public synchronized boolean setWhatIf(String assignmentId, Double score) {
+        int[] position = positions.get(assignmentId);
+        if (position == null) {
+            return false;
+        }
+        Group group = groups[position[0]];
+        int row = position[1];
+        if (score == null) {
+            whatIf.remove(assignmentId);
+            group.update(row, group.actual[row]);
+        } else {
+            whatIf.put(assignmentId, score);
+            group.update(row, score);
+        }
+        return true;
+    }
+
+    /**
+     * Clears every what-if score.
+     */
+    public synchronized void clearWhatIf() {
+        for (String assignmentId : new ArrayList<>(whatIf.keySet())) {
+            setWhatIf(assignmentId, null);
+        }
+    }
+
+    /**
+     * @return A copy of the what-if scores currently set, by assignment id.
+     */
+    public synchronized Map<String, Double> getWhatIf() {
+        return new LinkedHashMap<>(whatIf);
+    }
+
+    /**
+     * @return The course grade with its group breakdown, including any what-if scores.
+     */
+    public synchronized Grade getGrade() {
+        List<GroupGrade> groupGrades = new ArrayList<>(groups.length);
+        for (Group group : groups) {
+            groupGrades.add(new GroupGrade(group.id, group.name, group.weight,
+                    percent(group.currentEarned, group.currentPossible), percent(group.finalEarned, group.finalPossible),
+                    group.currentEarned, group.currentPossible, group.droppedIds()));
+        }
+        return new Grade(courseId, courseName, weighted, courseGrade(false), courseGrade(true),
+                new LinkedHashMap<>(whatIf), groupGrades);
+    }
+
+    /**
+     * Combines the group sums into the course percentage, or null if nothing counts yet.
+     */
+    private Double courseGrade(boolean fin) {
+        double earned = 0;
+        double possible = 0;
+        for (Group group : groups) {
+            double groupEarned = fin ? group.finalEarned : group.currentEarned;
+            double groupPossible = fin ? group.finalPossible : group.currentPossible;
+            if (!weighted) {
+                earned += groupEarned;
+                possible += groupPossible;
+            } else if (groupPossible > 0) {
+                // Weighted: the score is scaled over the weights of the groups that have points.
+                earned += groupEarned / groupPossible * group.weight;
+                possible += group.weight;
+            }
+        }
+        return percent(earned, possible);
+    }
+
+    private static Double percent(double earned, double possible) {
+        return possible > 0 ? Math.round(earned / possible * 10_000) / 100.0 : null;
+    }
+
+    /**
+     * An assignment as Canvas reports it in its assignment group.
+     *
+     * @param id             "assignment:{id}".
+     * @param name           The assignment name.
+     * @param pointsPossible Points possible (0 if none).
+     * @param score          The score of the user's submission, or null if it is not graded.
+     */
+    public record AssignmentScore(String id, String name, double pointsPossible, Double score) {
+    }
+
+    /**
+     * An assignment group and its rules.
+     *
+     * @param id          The Canvas group id.
+     * @param name        The group name.
+     * @param weight      The group weight, in percent (used only if the course is weighted).
+     * @param dropLowest  How many of the lowest scores to drop.
+     * @param dropHighest How many of the highest scores to drop.
+     * @param neverDrop   Ids of assignments that are never dropped.
+     * @param assignments The counted assignments (excused and omitted ones left out).
+     */
+    public record GroupDefinition(String id, String name, double weight, int dropLowest, int dropHighest,
+                                  Set<String> neverDrop, List<AssignmentScore> assignments) {
+    }
+
+    /**
+     * A course grade. Percentages are rounded to two decimals and null when nothing counts yet.
+     */
+    public record Grade(String courseId, String courseName, boolean weighted, Double current, Double finalGrade,
+                        Map<String, Double> whatIf, List<GroupGrade> groups) {
+    }
+
+    /**
+     * The grade of one assignment group: its percentages, the current points that count after drops,
+     * and the ids of the assignments dropped from the current grade.
+     */
+    public record GroupGrade(String id, String name, double weight, Double current, Double finalGrade,
+                             double earned, double possible, List<String> dropped) {
+    }
+
+    /**
+     * One assignment group with its point sums, stored column-wise.
+     */
+    private static final class Group {
+        private final String id;
+        private final String name;
+        private final double weight;
+        private final int dropLowest;
+        private final int dropHighest;
+
+        // Per assignment: id, points possible, real score and effective (possibly what-if) score; NaN = ungraded.
+        private final String[] ids;
+        private final double[] possible;
+        private final double[] actual;
+        private final double[] score;
+        private final boolean[] neverDrop;
+
+        // Sums of the assignments that count: graded ones for the current grade, all of them for the final one.
+        private double currentEarned;
+        private double currentPossible;
+        private double finalEarned;
+        private double finalPossible;
+
+        // Assignments dropped from the current grade (only with drop rules).
+        private boolean[] dropped;
+
+        private Group(GroupDefinition definition) {
+            id = definition.id();
+            name = definition.name();
+            weight = definition.weight();
+            dropLowest = definition.dropLowest();
+            dropHighest = definition.dropHighest();
+            int n = definition.assignments().size();
+            ids = new String[n];
+            possible = new double[n];
+            actual = new double[n];
+            neverDrop = new boolean[n];
+            dropped = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                AssignmentScore assignment = definition.assignments().get(i);
+                ids[i] = assignment.id();
+                possible[i] = assignment.pointsPossible();
+                actual[i] = assignment.score() == null ? Double.NaN : assignment.score();
+                neverDrop[i] = definition.neverDrop().contains(assignment.id());
+            }
+            score = actual.clone();
+            recompute();
+        }
+
+        private boolean hasDropRules() {
+            return dropLowest > 0 || dropHighest > 0;
+        }
+
+        /**
+         * Changes one effective score. Without drop rules the sums are adjusted in place; with them the
+         * group's drops are re-run, since one score can change which assignments are dropped.
+         */
+        private void update(int row, double newScore) {
+            if (hasDropRules()) {
+                score[row] = newScore;
+                recompute();
+                return;
+            }
+            double old = score[row];
+            score[row] = newScore;
+            if (!Double.isNaN(old)) {
+                currentEarned -= old;
+                currentPossible -= possible[row];
+            }
+            if (!Double.isNaN(newScore)) {
+                currentEarned += newScore;
+                currentPossible += possible[row];
+            }
+            finalEarned += (Double.isNaN(newScore) ? 0 : newScore) - (Double.isNaN(old) ? 0 : old);
+        }
+
+        private void recompute() {
+            int n = ids.length;
+            boolean[] graded = new boolean[n];
+            boolean[] all = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                graded[i] = !Double.isNaN(score[i]);
+                all[i] = true;
+            }
+            double[] scores = new double[n];
+            for (int i = 0; i < n; i++) {
+                scores[i] = Double.isNaN(score[i]) ? 0 : score[i];
+            }
+
+            boolean[] keptCurrent = applyDropRules(scores, graded);
+            boolean[] keptFinal = applyDropRules(scores, all);
+            currentEarned = currentPossible = finalEarned = finalPossible = 0;
+            for (int i = 0; i < n; i++) {
+                dropped[i] = graded[i] && !keptCurrent[i];
+                if (keptCurrent[i]) {
+                    currentEarned += scores[i];
+                    currentPossible += possible[i];
+                }
+                if (keptFinal[i]) {
+                    finalEarned += scores[i];
+                    finalPossible += possible[i];
+                }
+            }
+        }
+
+        /**
+         * Applies drop_lowest, then drop_highest, to the given candidates, as Canvas does: the lowest are the
+         * assignments whose removal raises the group score the most, the highest those whose removal lowers it
+         * the most, and at least one droppable assignment is always kept.
+         *
+         * @return Which candidates are kept.
+         */
+        private boolean[] applyDropRules(double[] scores, boolean[] candidates) {
+            boolean[] kept = candidates.clone();
+            if (!hasDropRules()) {
+                return kept;
+            }
+            int droppable = 0;
+            for (int i = 0; i < kept.length; i++) {
+                if (kept[i] && !neverDrop[i]) {
+                    droppable++;
+                }
+            }
+            int keepAfterLowest = Math.max(1, droppable - dropLowest);
+            keepBest(scores, kept, Math.min(droppable, keepAfterLowest), true);
+            keepBest(scores, kept, Math.max(1, Math.min(droppable, keepAfterLowest) - dropHighest), false);
+            return kept;
+        }
+
+        /**
+         * Keeps the {@code keep} droppable assignments that maximize (or minimize) the group score, clearing
+         * the others in {@code kept}. Choosing by score alone is wrong when points possible differ, so this
+         * uses Dinkelbach's method: with the current ratio q, keep the assignments with the largest
+         * score - q * possible and repeat with the new ratio until it stops improving (a few rounds).
+         */
+        private void keepBest(double[] scores, boolean[] kept, int keep, boolean maximize) {
+            int[] droppable = new int[kept.length];
+            int count = 0;
+            double fixedEarned = 0;
+            double fixedPossible = 0;
+            for (int i = 0; i < kept.length; i++) {
+                if (!kept[i]) {
+                    continue;
+                }
+                if (neverDrop[i]) {
+                    fixedEarned += scores[i];
+                    fixedPossible += possible[i];
+                } else {
+                    droppable[count++] = i;
+                }
+            }
+            if (keep >= count) {
+                return;
+            }
+
+            Integer[] order = new Integer[count];
+            boolean[] chosen = new boolean[kept.length];
+            double q = ratio(scores, droppable, count, null, fixedEarned, fixedPossible);
+            for (int round = 0; round < 2 * count + 2; round++) {
+                double pivot = q;
+                for (int i = 0; i < count; i++) {
+                    order[i] = droppable[i];
+                }
+                Arrays.sort(order, (a, b) -> {
+                    int byValue = Double.compare(scores[b] - pivot * possible[b], scores[a] - pivot * possible[a]);
+                    return maximize ? byValue : -byValue;
+                });
+                Arrays.fill(chosen, false);
+                for (int i = 0; i < keep; i++) {
+                    chosen[order[i]] = true;
+                }
+                double next = ratio(scores, droppable, count, chosen, fixedEarned, fixedPossible);
+                if (maximize ? next <= q + 1e-12 : next >= q - 1e-12) {
+                    q = next;
+                    break;
+                }
+                q = next;
+            }
+            for (int i = 0; i < count; i++) {
+                kept[droppable[i]] = chosen[droppable[i]];
+            }
+        }
+
+        private double ratio(double[] scores, int[] rows, int count, boolean[] chosen, double earned, double possibleSum) {
+            for (int i = 0; i < count; i++) {
+                if (chosen == null || chosen[rows[i]]) {
+                    earned += scores[rows[i]];
+                    possibleSum += possible[rows[i]];
+                }
+            }
+            return possibleSum > 0 ? earned / possibleSum : 0;
+        }
+
+        private List<String> droppedIds() {
+            List<String> droppedIds = new ArrayList<>();
+            for (int i = 0; i < ids.length; i++) {
+                if (dropped[i]) {
+                    droppedIds.add(ids[i]);
+                }
+            }
+            return droppedIds;
+        }
+    }
+}
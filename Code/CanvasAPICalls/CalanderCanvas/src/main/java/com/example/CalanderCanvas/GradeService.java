@@ -0,0 +1,301 @@
+package com.example.CalanderCanvas;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * GradeService:
+ * Keeps a GradeBook per course for the grade endpoints, and the what-if scores each session sets on them.
+ *
+ * The grade books are fetched from Canvas on first use and again once they are older than
+ * {@code canvas.sync.max-age} (or on force). They are published as one immutable snapshot, so reads and
+ * what-if changes use the current snapshot without waiting on a fetch in progress. As in CanvasSyncService,
+ * one fetch runs at a time, on the application task executor, so the deadline of the request that started it
+ * does not cut it short; callers wait for it only within their own deadline. A course whose assignment groups
+ * could not be fetched keeps its previous grade book, and such a partial snapshot is not fresh, so the next
+ * read fetches again. The snapshot's grade books never hold what-if scores: a session that sets some gets its own
+ * copies of the affected courses (see {@link WhatIf}), so one user's hypotheses never show up in another's
+ * grades. Changing a what-if score only recomputes that score's assignment group, without another Canvas
+ * call; the scores are carried over to copies of the new grade books when Canvas is read again.
+ */
+@Service
+public class GradeService {
+
+    // Service that fetches the assignment groups from Canvas.
+    private final CanvasAPIService canvasService;
+
+    // How long fetched grade books are reused.
+    private final Duration maxAge;
+
+    // Executor the fetch runs on, away from the deadline of the request that started it.
+    private final AsyncTaskExecutor executor;
+
+    // The fetch currently running, or null, so concurrent stale reads fetch once; guarded by this.
+    private CompletableFuture<Snapshot> inFlight;
+
+    // The latest grade books, or null before the first fetch.
+    private volatile Snapshot snapshot;
+
+    public GradeService(CanvasAPIService canvasService, @Value("${canvas.sync.max-age:60s}") Duration maxAge,
+                        @Qualifier("applicationTaskExecutor") AsyncTaskExecutor executor) {
+        this.canvasService = canvasService;
+        this.maxAge = maxAge;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the grade of every course.
+     *
+     * @param force  Whether to re-read Canvas even if the grade books are fresh.
+     * @param whatIf The session's what-if scores.
+     * @return One grade per course, in course order.
+     */
+    public List<GradeBook.Grade> getGrades(boolean force, WhatIf whatIf) {
+        Snapshot current = snapshot(force);
+        List<GradeBook.Grade> grades = new ArrayList<>();
+        synchronized (whatIf) {
+            whatIf.rebase(current);
+            for (GradeBook book : current.books().values()) {
+                grades.add(whatIf.books.getOrDefault(book.getCourseId(), book).getGrade());
+            }
+        }
+        return grades;
+    }
+
+    /**
+     * Returns the grade of one course.
+     *
+     * @param whatIf The session's what-if scores.
+     * @throws ResponseStatusException 404 if there is no such course.
+     */
+    public GradeBook.Grade getGrade(String courseId, WhatIf whatIf) {
+        Snapshot current = snapshot(false);
+        GradeBook book = book(current, courseId);
+        synchronized (whatIf) {
+            whatIf.rebase(current);
+            return whatIf.books.getOrDefault(courseId, book).getGrade();
+        }
+    }
+
+    /**
+     * Sets (or, for null values, clears) what-if scores of a course's assignments for one session.
+     *
+     * @param courseId The course id.
+     * @param scores   Hypothetical scores by assignment id ("assignment:123").
+     * @param whatIf   The session's what-if scores.
+     * @return The course grade with the session's what-if scores applied.
+     * @throws ResponseStatusException 404 if there is no such course, 400 if an assignment is not in it
+     *                                 (none of the scores are applied then).
+     */
+    public GradeBook.Grade setWhatIf(String courseId, Map<String, Double> scores, WhatIf whatIf) {
+        Snapshot current = loadedSnapshot();
+        GradeBook base = book(current, courseId);
+        for (String assignmentId : scores.keySet()) {
+            if (!base.hasAssignment(assignmentId)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Course " + courseId + " has no graded assignment " + assignmentId);
+            }
+        }
+        synchronized (whatIf) {
+            whatIf.rebase(current);
+            GradeBook book = whatIf.books.computeIfAbsent(courseId, id -> base.copy());
+            scores.forEach(book::setWhatIf);
+            return book.getGrade();
+        }
+    }
+
+    /**
+     * Clears every what-if score a session set on a course.
+     *
+     * @param whatIf The session's what-if scores.
+     * @return The course grade from real scores only.
+     */
+    public GradeBook.Grade clearWhatIf(String courseId, WhatIf whatIf) {
+        GradeBook base = book(loadedSnapshot(), courseId);
+        synchronized (whatIf) {
+            whatIf.books.remove(courseId);
+        }
+        return base.getGrade();
+    }
+
+    private static GradeBook book(Snapshot snapshot, String courseId) {
+        GradeBook book = snapshot.books().get(courseId);
+        if (book == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No course with ID " + courseId);
+        }
+        return book;
+    }
+
+    /**
+     * Returns the grade books already fetched, even if stale, so what-if changes never wait on Canvas;
+     * fetches them only if there are none yet.
+     */
+    private Snapshot loadedSnapshot() {
+        Snapshot current = snapshot;
+        return current != null ? current : snapshot(false);
+    }
+
+    /**
+     * Returns the grade books, fetching them again if they are missing, stale or {@code force} is set.
+     * A caller that waited on another caller's fetch uses its result rather than fetching again.
+     */
+    private Snapshot snapshot(boolean force) {
+        Snapshot seen = snapshot;
+        if (!force && isFresh(seen)) {
+            return seen;
+        }
+        CompletableFuture<Snapshot> run;
+        synchronized (this) {
+            Snapshot current = snapshot;
+            if ((current != seen && current != null) || (!force && isFresh(current))) {
+                return current;
+            }
+            if (inFlight == null) {
+                inFlight = new CompletableFuture<>();
+                startFetch(inFlight, force);
+            }
+            run = inFlight;
+        }
+        return awaitWithinDeadline(run);
+    }
+
+    /**
+     * Runs the fetch on the executor, publishes its snapshot and completes the given future with it.
+     */
+    private void startFetch(CompletableFuture<Snapshot> run, boolean force) {
+        try {
+            executor.execute(() -> {
+                try {
+                    if (force) {
+                        canvasService.invalidateCache();
+                    }
+                    Snapshot fetched = snapshotOf(canvasService.getGradeBooks(), snapshot);
+                    snapshot = fetched;
+                    finish(run, fetched, null);
+                } catch (RuntimeException e) {
+                    finish(run, null, e);
+                }
+            });
+        } catch (RuntimeException e) {
+            // The executor rejected the fetch (e.g. during shutdown).
+            finish(run, null, e);
+        }
+    }
+
+    private void finish(CompletableFuture<Snapshot> run, Snapshot fetched, RuntimeException failure) {
+        synchronized (this) {
+            inFlight = null;
+        }
+        if (failure != null) {
+            run.completeExceptionally(failure);
+        } else {
+            run.complete(fetched);
+        }
+    }
+
+    /**
+     * Waits for a fetch, but no longer than the current request's deadline.
+     */
+    private static Snapshot awaitWithinDeadline(CompletableFuture<Snapshot> run) {
+        RequestDeadline deadline = RequestDeadline.current();
+        if (deadline == null || run.isDone()) {
+            return run.join();
+        }
+        try {
+            return run.get(Math.max(0, deadline.remainingMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            deadline.markIncomplete();
+            throw new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "Canvas grades were not read within the request deadline");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Builds the snapshot of a fetch, in course order. A course whose assignment groups could not be fetched
+     * keeps its grade book from the previous snapshot, if it had one.
+     */
+    private static Snapshot snapshotOf(CanvasAPIService.GradeBookFetch fetch, Snapshot previous) {
+        Map<String, GradeBook> fetched = new HashMap<>();
+        for (GradeBook book : fetch.books()) {
+            fetched.put(book.getCourseId(), book);
+        }
+        Map<String, GradeBook> books = new LinkedHashMap<>();
+        for (String courseId : fetch.courseIds()) {
+            GradeBook book = fetched.get(courseId);
+            if (book == null && previous != null) {
+                book = previous.books().get(courseId);
+            }
+            if (book != null) {
+                books.put(courseId, book);
+            }
+        }
+        return new Snapshot(books, Instant.now(), fetch.incompleteCourses().isEmpty());
+    }
+
+    private boolean isFresh(Snapshot snapshot) {
+        return snapshot != null && snapshot.complete() && snapshot.fetchedAt().plus(maxAge).isAfter(Instant.now());
+    }
+
+    /**
+     * Grade books by course id, in course order, when they were fetched, and whether every course was.
+     * Never modified once published.
+     */
+    private record Snapshot(Map<String, GradeBook> books, Instant fetchedAt, boolean complete) {
+    }
+
+    /**
+     * WhatIf:
+     * One session's what-if scores, held as that session's copies of the grade books it changed.
+     *
+     * The copies are rebuilt from a newer snapshot the next time the session uses it, keeping the scores of
+     * assignments that still exist. Guarded by its own monitor.
+     */
+    public static final class WhatIf {
+
+        // Grade books with this session's what-if scores, by course id.
+        private final Map<String, GradeBook> books = new HashMap<>();
+
+        // The snapshot the copies were made from.
+        private Snapshot basedOn;
+
+        private void rebase(Snapshot current) {
+            if (basedOn == current) {
+                return;
+            }
+            for (Iterator<Map.Entry<String, GradeBook>> it = books.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, GradeBook> entry = it.next();
+                GradeBook base = current.books().get(entry.getKey());
+                if (base == null) {
+                    it.remove();
+                    continue;
+                }
+                GradeBook copy = base.copy();
+                entry.getValue().getWhatIf().forEach(copy::setWhatIf);
+                entry.setValue(copy);
+            }
+            basedOn = current;
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package com.example.CalanderCanvas;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HedgedFetcher:
+ * Sends the Canvas GET requests for CanvasAPIService, bounded by the current request's deadline and hedged
+ * against slow responses.
+ *
+ * Single flight: concurrent callers asking for the same URL share one fetch, so a burst of misses on a
+ * popular URL (e.g. right after a refresh) reaches the shared cache and Canvas once per instance.
+ *
+ * Deadline: if the request being served has a RequestDeadline, its future fails with a TimeoutException once
+ * the deadline passes, and the deadline is marked incomplete. The shared fetch itself has no deadline, so a
+ * caller that gives up does not fail it for the others; only when every caller with a deadline has given up
+ * (and none without one is waiting) is it dropped, and attempts still queued are then not sent. Calls made
+ * after the deadline fail immediately without being sent.
+ *
+ * Hedging: Canvas GETs are idempotent, so when a response has not arrived after the observed p95 latency
+ * (over the last canvas.hedge.window successful calls) a duplicate is sent and whichever answers first wins.
+ * Hedges are limited by a token budget: every fetch earns canvas.hedge.budget-ratio of a token and a hedge
+ * spends one, so hedges stay a small, bounded fraction of upstream traffic even when Canvas is slow overall.
+ *
+ * Caching: responses are looked up in CanvasResponseCache first. This instance's copy is checked on the
+ * caller's thread; the cache shared by all instances may be a network call, so it is checked by the fetch
+ * task itself, right before the request to Canvas. Hits are not counted towards the latency samples.
+ *
+ * Threads: every fetch is one task on the canvasFetchExecutor (see AppConfig), and a hedge is one more task
+ * submitted by a timer. Fetch tasks never submit tasks or wait on anything but their own HTTP call, and the
+ * futures returned here complete on the common ForkJoinPool rather than on a fetch thread. So callbacks that
+ * request more (the next page of a listing) never run inside a fetch task, and the executor may be bounded
+ * or throttled without risk of fetch tasks waiting on each other.
+ */
+@Component
+public class HedgedFetcher {
+
+    // RestTemplate used for the actual HTTP calls (with connect/read timeouts from AppConfig).
+    private final RestTemplate restTemplate;
+
+    // Executor the attempts run on.
+    private final AsyncTaskExecutor executor;
+
+    // Two-level cache consulted before Canvas is called.
+    private final CanvasResponseCache cache;
+
+    // Fetches in progress by URL, shared by every caller asking for that URL.
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+
+    // Ring buffer of recent successful call latencies in milliseconds; guarded by this.
+    private final long[] latencies;
+    private int latencyCount;
+    private int latencyNext;
+
+    // Cached hedge delay, recomputed every RECOMPUTE_EVERY samples; guarded by this.
+    private long hedgeDelayMillis = -1;
+    private int samplesSinceRecompute;
+    private static final int RECOMPUTE_EVERY = 16;
+
+    // Hedge token budget; guarded by this.
+    private final double budgetRatio;
+    private final double maxTokens;
+    private double tokens;
+
+    // Calls needed before hedging starts, and the smallest delay a hedge may be sent after.
+    private final int minSamples;
+    private final long minDelayMillis;
+
+    public HedgedFetcher(RestTemplate restTemplate,
+                         @Qualifier("canvasFetchExecutor") AsyncTaskExecutor executor,
+                         CanvasResponseCache cache,
+                         @Value("${canvas.hedge.window:256}") int window,
+                         @Value("${canvas.hedge.min-samples:20}") int minSamples,
+                         @Value("${canvas.hedge.min-delay:50ms}") Duration minDelay,
+                         @Value("${canvas.hedge.budget-ratio:0.05}") double budgetRatio,
+                         @Value("${canvas.hedge.max-burst:10}") double maxBurst) {
+        this.restTemplate = restTemplate;
+        this.executor = executor;
+        this.cache = cache;
+        this.latencies = new long[window];
+        this.minSamples = minSamples;
+        this.minDelayMillis = minDelay.toMillis();
+        this.budgetRatio = budgetRatio;
+        this.maxTokens = maxBurst;
+    }
+
+    /**
+     * Sends a GET request for the given URL.
+     *
+     * @param url The full Canvas URL, including the access token.
+     * @return A future of the response body; it fails if every attempt fails or the request deadline passes.
+     */
+    public CompletableFuture<String> get(String url) {
+        return getEntity(url, RequestDeadline.current(), CanvasEvents.currentTrace()).thenApply(ResponseEntity::getBody);
+    }
+
+    /**
+     * Sends a GET request for the given URL and keeps the response headers (e.g. the Link header of a paged
+     * listing). The deadline and trace are passed explicitly because follow-up pages are requested from
+     * completion callbacks, which do not run on the request's thread.
+     *
+     * @param url      The full, already encoded Canvas URL, including the access token.
+     * @param deadline The deadline of the request being served, or null for background work.
+     * @param trace    The trace id the fetch events are recorded under (see CanvasEvents), or null.
+     * @return A future of the response; it fails if every attempt fails or the deadline passes.
+     */
+    public CompletableFuture<ResponseEntity<String>> getEntity(String url, RequestDeadline deadline, String trace) {
+        ResponseEntity<String> cached = cache.getLocal(url);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        long remaining = deadline != null ? deadline.remainingMillis() : Long.MAX_VALUE;
+        if (remaining <= 0) {
+            deadline.markIncomplete();
+            return CompletableFuture.failedFuture(new TimeoutException("Request deadline passed"));
+        }
+
+        Flight flight = join(url, deadline == null, trace);
+        CompletableFuture<ResponseEntity<String>> mine = new CompletableFuture<>();
+        // Completed on the common pool, so the caller's callbacks never run on a fetch thread.
+        flight.result.whenCompleteAsync((response, e) -> {
+            if (e != null) {
+                mine.completeExceptionally(e);
+            } else {
+                mine.complete(response);
+            }
+        });
+        if (deadline != null) {
+            CompletableFuture.delayedExecutor(remaining, TimeUnit.MILLISECONDS).execute(() -> {
+                // Marked before the future fails, so whoever sees the failure also sees the incomplete flag.
+                if (!mine.isDone()) {
+                    deadline.markIncomplete();
+                    mine.completeExceptionally(new TimeoutException("Request deadline passed"));
+                    leave(url, flight);
+                }
+            });
+        }
+        return mine;
+    }
+
+    /**
+     * Joins the fetch of a URL in progress, or starts one.
+     *
+     * @param unbounded true if the caller has no deadline and so keeps the fetch alive until it completes.
+     * @param trace     The caller's trace id, kept by a fetch it starts.
+     */
+    private Flight join(String url, boolean unbounded, String trace) {
+        Flight[] started = new Flight[1];
+        Flight flight = inFlight.compute(url, (u, current) -> {
+            if (current == null) {
+                current = new Flight(trace);
+                started[0] = current;
+            }
+            if (unbounded) {
+                current.unbounded = true;
+            } else {
+                current.waiters++;
+            }
+            return current;
+        });
+        if (started[0] != null) {
+            start(url, flight);
+        }
+        return flight;
+    }
+
+    /**
+     * Called when a caller's deadline passes. Once no caller is left the fetch is dropped: it fails, its queued
+     * attempts are not sent, and the next caller starts a new one.
+     */
+    private void leave(String url, Flight flight) {
+        boolean[] abandoned = new boolean[1];
+        inFlight.computeIfPresent(url, (u, current) -> {
+            if (current != flight) {
+                return current;
+            }
+            flight.waiters--;
+            if (flight.waiters == 0 && !flight.unbounded) {
+                abandoned[0] = true;
+                return null;
+            }
+            return current;
+        });
+        if (abandoned[0]) {
+            flight.result.completeExceptionally(new TimeoutException("Every caller's deadline passed"));
+        }
+    }
+
+    /**
+     * Starts the fetch task: it looks the URL up in the shared cache and, on a miss, sends the first attempt
+     * itself and arms the hedge timer.
+     */
+    private void start(String url, Flight flight) {
+        flight.result.whenComplete((response, e) -> inFlight.remove(url, flight));
+        earnToken();
+        flight.pending.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                if (flight.result.isDone()) {
+                    return;
+                }
+                try {
+                    CanvasResponseCache.Lookup lookup = cache.getShared(url);
+                    if (lookup.response() != null) {
+                        flight.result.complete(lookup.response());
+                        return;
+                    }
+                    flight.lookup = lookup;
+
+                    long delay = currentHedgeDelay();
+                    if (delay >= 0) {
+                        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> {
+                            if (!flight.result.isDone() && trySpendToken()) {
+                                hedge(url, flight);
+                            }
+                        });
+                    }
+                    send(url, flight, false);
+                } catch (RuntimeException e) {
+                    // Anything failing outside an attempt (e.g. the shared cache lookup) fails the fetch, so
+                    // its callers never wait on a flight that nothing will complete.
+                    flight.result.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            // The executor rejected the fetch (e.g. during shutdown).
+            flight.result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Submits a hedge: a second attempt for a fetch whose first attempt is slow.
+     */
+    private void hedge(String url, Flight flight) {
+        flight.pending.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                // Another attempt already answered, or every caller gave up while this one was queued.
+                if (!flight.result.isDone()) {
+                    send(url, flight, true);
+                } else {
+                    flight.pending.decrementAndGet();
+                }
+            });
+        } catch (RuntimeException e) {
+            if (flight.pending.decrementAndGet() == 0) {
+                flight.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Sends one attempt on the current (fetch) thread. The first successful attempt completes the fetch and
+     * then stores the response in the cache; the fetch only fails once every attempt that was started has failed.
+     * Each attempt is recorded as a canvas.Fetch JFR event.
+     */
+    private void send(String url, Flight flight, boolean hedge) {
+        // The URL is already encoded, so it is passed as a URI to keep RestTemplate from encoding it again.
+        URI uri = URI.create(url);
+        CanvasEvents.FetchEvent event = new CanvasEvents.FetchEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            ResponseEntity<String> response = restTemplate.getForEntity(uri, String.class);
+            recordLatency((System.nanoTime() - start) / 1_000_000L);
+            event.status = response.getStatusCode().value();
+            event.chars = response.getBody() != null ? response.getBody().length() : 0;
+            if (flight.result.complete(response)) {
+                // Callers get the response first; failing to cache it only costs a later fetch.
+                try {
+                    cache.put(url, response, flight.lookup);
+                } catch (RuntimeException e) {
+                    System.err.println("Failed to cache a Canvas response: " + e.getMessage());
+                }
+            }
+        } catch (RuntimeException e) {
+            event.status = e instanceof RestClientResponseException failed ? failed.getStatusCode().value() : -1;
+            if (flight.pending.decrementAndGet() == 0) {
+                flight.result.completeExceptionally(e);
+            }
+        } finally {
+            // Only the path is recorded; the query string carries the access token.
+            event.path = uri.getPath();
+            event.hedge = hedge;
+            event.trace = flight.trace;
+            event.commit();
+        }
+    }
+
+    private synchronized void recordLatency(long millis) {
+        latencies[latencyNext] = millis;
+        latencyNext = (latencyNext + 1) % latencies.length;
+        latencyCount = Math.min(latencyCount + 1, latencies.length);
+        samplesSinceRecompute++;
+    }
+
+    /**
+     * @return The delay after which to hedge, or -1 while there are too few samples to know the p95.
+     */
+    private synchronized long currentHedgeDelay() {
+        if (latencyCount < minSamples) {
+            return -1;
+        }
+        if (hedgeDelayMillis < 0 || samplesSinceRecompute >= RECOMPUTE_EVERY) {
+            long[] sorted = Arrays.copyOf(latencies, latencyCount);
+            Arrays.sort(sorted);
+            long p95 = sorted[(int) Math.ceil(sorted.length * 0.95) - 1];
+            hedgeDelayMillis = Math.max(minDelayMillis, p95);
+            samplesSinceRecompute = 0;
+        }
+        return hedgeDelayMillis;
+    }
+
+    private synchronized void earnToken() {
+        tokens = Math.min(maxTokens, tokens + budgetRatio);
+    }
+
+    private synchronized boolean trySpendToken() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    /**
+     * One fetch of a URL, shared by the callers waiting for it.
+     */
+    private static final class Flight {
+        // Completed by the first successful attempt, or when every attempt failed or every caller gave up.
+        private final CompletableFuture<ResponseEntity<String>> result = new CompletableFuture<>();
+
+        // Attempts started and not yet failed.
+        private final AtomicInteger pending = new AtomicInteger();
+
+        // The shared-cache lookup that missed, passed on to the cache with the response.
+        private volatile CanvasResponseCache.Lookup lookup;
+
+        // Trace id of the caller that started the fetch, recorded on its events.
+        private final String trace;
+
+        // Callers with a deadline still waiting, and whether any caller without one is; guarded by inFlight.
+        private int waiters;
+        private boolean unbounded;
+
+        private Flight(String trace) {
+            this.trace = trace;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.CalanderCanvas;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * InMemorySharedCache:
+ * A SharedCache kept in this process, used when no remote nodes are configured (a single instance) and in
+ * tests, where several CanvasResponseCache instances can share one to stand in for several nodes.
+ */
+public class InMemorySharedCache implements SharedCache {
+
+    // Entries per tenant.
+    private final Map<String, Map<String, Entry>> tenants = new ConcurrentHashMap<>();
+
+    // Generation of each tenant that has been invalidated; absent means 0.
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+
+    // Invalidation listeners of every cache using this instance.
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public Lookup get(String tenant, String key) {
+        long generation = generations.getOrDefault(tenant, 0L);
+        Map<String, Entry> entries = tenants.get(tenant);
+        Entry entry = entries != null ? entries.get(key) : null;
+        if (entry == null || entry.generation < generation) {
+            return new Lookup(null, generation);
+        }
+        if (entry.expiresAt < System.nanoTime()) {
+            entries.remove(key, entry);
+            return new Lookup(null, generation);
+        }
+        return new Lookup(entry.value, generation);
+    }
+
+    @Override
+    public void put(String tenant, String key, byte[] value, long generation, Duration ttl) {
+        if (generation < generations.getOrDefault(tenant, 0L)) {
+            return;
+        }
+        tenants.computeIfAbsent(tenant, t -> new ConcurrentHashMap<>())
+                .put(key, new Entry(value, generation, System.nanoTime() + ttl.toNanos()));
+    }
+
+    @Override
+    public void invalidate(String tenant) {
+        generations.merge(tenant, 1L, Long::sum);
+        tenants.remove(tenant);
+        for (Consumer<String> listener : listeners) {
+            listener.accept(tenant);
+        }
+    }
+
+    @Override
+    public void onInvalidate(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+    private record Entry(byte[] value, long generation, long expiresAt) {
+    }
+}
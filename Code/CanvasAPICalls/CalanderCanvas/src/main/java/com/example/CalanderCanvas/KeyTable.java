@@ -0,0 +1,120 @@
+package com.example.CalanderCanvas;
+
+/**
+ * KeyTable:
+ * A hash table from long keys to non-negative ints, kept in two primitive arrays instead of a HashMap of
+ * boxed Longs and Integers. ColumnarItemStore uses it to find an item's row by its key (see
+ * {@link ColumnarItemStore#keyOf}), and SearchIndex to find an item's document number.
+ *
+ * Open addressing with linear probing; the length of the arrays is a power of two and they are at most three
+ * quarters full. A removal shifts the later entries of its probe run back, so no tombstones are left.
+ * Not thread-safe.
+ */
+public class KeyTable {
+
+    // Keys, and value + 1 per slot (0 = empty slot).
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    /**
+     * @param expected The number of entries to size the table for.
+     */
+    public KeyTable(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(8, expected * 2) - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+    }
+
+    /**
+     * @return The value of the key, or -1 if it is not in the table.
+     */
+    public int get(long key) {
+        return values[slotOf(key)] - 1;
+    }
+
+    /**
+     * Adds a key or replaces its value.
+     *
+     * @param value A value of 0 or more.
+     */
+    public void put(long key, int value) {
+        int slot = slotOf(key);
+        if (values[slot] == 0) {
+            size++;
+        }
+        keys[slot] = key;
+        values[slot] = value + 1;
+        if (size * 4 > keys.length * 3) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    /**
+     * Removes a key, if present.
+     */
+    public void remove(long key) {
+        int mask = keys.length - 1;
+        int slot = slotOf(key);
+        if (values[slot] == 0) {
+            return;
+        }
+        values[slot] = 0;
+        size--;
+        int next = (slot + 1) & mask;
+        while (values[next] != 0) {
+            int home = hash(keys[next]) & mask;
+            // Move the entry back if its home slot is not between the gap and its current position.
+            boolean movable = slot <= next ? (home <= slot || home > next) : (home <= slot && home > next);
+            if (movable) {
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                values[next] = 0;
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+    }
+
+    /**
+     * @return The number of keys.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The memory held by the table (plus object headers).
+     */
+    public long estimatedBytes() {
+        return 12L * keys.length + 2 * 16 + 24;
+    }
+
+    private int slotOf(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (values[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != 0) {
+                int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
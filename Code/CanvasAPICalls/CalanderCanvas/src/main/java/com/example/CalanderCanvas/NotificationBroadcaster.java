@@ -0,0 +1,262 @@
+package com.example.CalanderCanvas;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * NotificationBroadcaster:
+ * Pushes CanvasNotifications to clients subscribed to GET /notifications over Server-Sent Events.
+ *
+ * It listens to the CanvasDataset, so every sync that changes something (including the scheduled ones)
+ * is turned into typed notifications and fanned out to all subscribers.
+ *
+ * Memory per connection is bounded: each notification is serialized once and every subscriber only queues
+ * a reference to it, and a subscriber's queue holds at most canvas.push.queue-capacity entries. A subscriber
+ * that falls that far behind has its queue replaced by a single RESYNC notification, telling it to pull
+ * /changes instead.
+ *
+ * Queues are drained on a dedicated pool of canvas.push.threads threads (canvasPushExecutor), at most one
+ * drain per subscriber at a time and a few events per turn, so subscribers with long queues take turns with
+ * the others and crawls never wait for push threads. Sending is a blocking write, so a client that stops
+ * reading holds a push thread: a send still running after canvas.push.send-timeout drops the subscriber, and
+ * the thread is released when the write fails (at the latest after server.tomcat.connection-timeout). Until
+ * then, as many stalled clients as there are push threads can delay delivery to the others.
+ */
+@Component
+public class NotificationBroadcaster implements DatasetListener {
+
+    // Currently connected subscribers.
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    // Events a drain sends before it lets other subscribers' drains run.
+    private static final int SENDS_PER_TURN = 8;
+
+    // Executor that drains subscriber queues.
+    private final AsyncTaskExecutor executor;
+
+    // Used to serialize each notification once for all subscribers.
+    private final ObjectMapper objectMapper;
+
+    // Maximum number of undelivered notifications queued per subscriber.
+    private final int queueCapacity;
+
+    // How long a connection stays open before the client has to reconnect.
+    private final Duration connectionTimeout;
+
+    // How long one send may take before the subscriber is dropped.
+    private final long sendTimeoutNanos;
+
+    // Version of the latest dataset change, carried by the RESYNC sent to a subscriber that fell behind.
+    private volatile long latestVersion;
+
+    public NotificationBroadcaster(@Qualifier("canvasPushExecutor") AsyncTaskExecutor executor,
+                                   ObjectMapper objectMapper,
+                                   @Value("${canvas.push.queue-capacity:64}") int queueCapacity,
+                                   @Value("${canvas.push.connection-timeout:30m}") Duration connectionTimeout,
+                                   @Value("${canvas.push.send-timeout:10s}") Duration sendTimeout) {
+        this.executor = executor;
+        this.objectMapper = objectMapper;
+        this.queueCapacity = queueCapacity;
+        this.connectionTimeout = connectionTimeout;
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+    }
+
+    /**
+     * Registers a new subscriber.
+     *
+     * @return The emitter to return from the controller; it stays open until the client disconnects or times out.
+     */
+    public SseEmitter subscribe() {
+        return subscribe(new SseEmitter(connectionTimeout.toMillis()));
+    }
+
+    /**
+     * Registers a subscriber on the given emitter.
+     */
+    SseEmitter subscribe(SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter);
+        subscribers.add(subscriber);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+        return emitter;
+    }
+
+    /**
+     * @return The number of currently connected subscribers.
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Converts a dataset change into notifications and queues them for every subscriber.
+     */
+    @Override
+    public void onDatasetChange(DatasetChange change) {
+        latestVersion = change.version();
+        if (change.version() == 1) {
+            // The first sync loads the whole dataset; that is not news, so just tell clients to pull it.
+            broadcast(prepare(new CanvasNotification(CanvasNotification.Type.RESYNC, change.version(), null, null, null)));
+            return;
+        }
+
+        List<CanvasNotification> notifications = CanvasNotification.fromChange(change);
+        for (CanvasNotification notification : notifications) {
+            broadcast(prepare(notification));
+        }
+    }
+
+    /**
+     * Sends a comment line to every subscriber so dead connections are noticed and proxies keep idle ones open.
+     */
+    @Scheduled(fixedDelayString = "${canvas.push.heartbeat:30s}")
+    public void heartbeat() {
+        broadcast(new Prepared(null, null, null));
+    }
+
+    /**
+     * Drops subscribers whose current send has been blocked for longer than canvas.push.send-timeout,
+     * e.g. a client that stopped reading. They stop receiving events and their connection is ended.
+     */
+    @Scheduled(fixedDelayString = "${canvas.push.send-timeout:10s}")
+    public void dropStalledSubscribers() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.stalled(now)) {
+                System.err.println("Dropping a push subscriber whose send has not finished in time");
+                subscriber.close();
+                subscriber.emitter.completeWithError(new TimeoutException("Push send timed out"));
+            }
+        }
+    }
+
+    private void broadcast(Prepared prepared) {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(prepared);
+        }
+    }
+
+    private Prepared prepare(CanvasNotification notification) {
+        try {
+            return new Prepared(String.valueOf(notification.version()), notification.type().name(),
+                    objectMapper.writeValueAsString(notification));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize notification", e);
+        }
+    }
+
+    /**
+     * A serialized SSE event shared by every subscriber queue. A null name means a keep-alive comment.
+     */
+    private record Prepared(String id, String name, String json) {
+    }
+
+    /**
+     * One connected client with its bounded queue of undelivered events.
+     */
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final ArrayDeque<Prepared> queue = new ArrayDeque<>(); // guarded by this
+        private boolean draining;                                      // guarded by this
+        private boolean closed;                                        // guarded by this
+
+        // System.nanoTime() when the send in progress started, or 0 when none is.
+        private volatile long sendingSince;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private void offer(Prepared prepared) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (queue.size() >= queueCapacity) {
+                    // Too far behind: drop the backlog and tell the client to pull /changes instead.
+                    queue.clear();
+                    queue.add(prepare(new CanvasNotification(CanvasNotification.Type.RESYNC, latestVersion, null, null, null)));
+                }
+                queue.add(prepared);
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                close();
+            }
+        }
+
+        /**
+         * Sends up to SENDS_PER_TURN queued events, then queues itself again if more are waiting.
+         */
+        private void drain() {
+            for (int sent = 0; ; sent++) {
+                Prepared next;
+                synchronized (this) {
+                    if (closed || queue.isEmpty()) {
+                        draining = false;
+                        return;
+                    }
+                    if (sent == SENDS_PER_TURN) {
+                        break;
+                    }
+                    next = queue.poll();
+                }
+
+                sendingSince = System.nanoTime();
+                try {
+                    if (next.name == null) {
+                        emitter.send(SseEmitter.event().comment("keep-alive"));
+                    } else {
+                        emitter.send(SseEmitter.event().id(next.id).name(next.name).data(next.json, MediaType.APPLICATION_JSON));
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    close();
+                    emitter.completeWithError(e);
+                    return;
+                } finally {
+                    sendingSince = 0;
+                }
+            }
+            schedule();
+        }
+
+        private boolean stalled(long now) {
+            long since = sendingSince;
+            return since != 0 && now - since > sendTimeoutNanos;
+        }
+
+        private void close() {
+            synchronized (this) {
+                closed = true;
+                queue.clear();
+            }
+            subscribers.remove(this);
+        }
+    }
+}
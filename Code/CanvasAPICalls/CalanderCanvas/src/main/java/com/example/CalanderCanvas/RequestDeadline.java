@@ -0,0 +1,75 @@
+package com.example.CalanderCanvas;
+
+/**
+ * RequestDeadline:
+ * The time budget of the incoming request being served on the current thread.
+ *
+ * RequestDeadlineFilter starts one for every request, and every upstream Canvas call made while serving it
+ * (see HedgedFetcher) is limited to the time that is left. When an upstream call is cut off, the deadline is
+ * marked incomplete, and RequestDeadlineAdvice adds an "X-Result-Incomplete: true" header so the client knows
+ * it got a partial result rather than a complete one.
+ *
+ * Background work (scheduled syncs, the warm-up crawl) runs without a deadline.
+ */
+public final class RequestDeadline {
+
+    // Deadline of the request being served on this thread, if any.
+    private static final ThreadLocal<RequestDeadline> CURRENT = new ThreadLocal<>();
+
+    // System.nanoTime() value at which the budget runs out.
+    private final long deadlineNanos;
+
+    // Set once any upstream call was cut off by the deadline.
+    private volatile boolean incomplete;
+
+    private RequestDeadline(long budgetMillis) {
+        this.deadlineNanos = System.nanoTime() + budgetMillis * 1_000_000L;
+    }
+
+    /**
+     * @return The deadline of the request served on this thread, or null outside a request.
+     */
+    public static RequestDeadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Starts a deadline for the current thread.
+     *
+     * @param budgetMillis How long the request may take, in milliseconds.
+     * @return The new deadline.
+     */
+    static RequestDeadline start(long budgetMillis) {
+        RequestDeadline deadline = new RequestDeadline(budgetMillis);
+        CURRENT.set(deadline);
+        return deadline;
+    }
+
+    /**
+     * Removes the current thread's deadline.
+     */
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * @return Milliseconds left before the deadline (zero or negative once it has passed).
+     */
+    public long remainingMillis() {
+        return (deadlineNanos - System.nanoTime()) / 1_000_000L;
+    }
+
+    /**
+     * Records that part of the result was dropped because the deadline passed.
+     */
+    public void markIncomplete() {
+        incomplete = true;
+    }
+
+    /**
+     * @return true if any upstream call was cut off by this deadline.
+     */
+    public boolean isIncomplete() {
+        return incomplete;
+    }
+}
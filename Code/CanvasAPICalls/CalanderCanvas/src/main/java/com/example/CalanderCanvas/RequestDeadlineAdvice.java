@@ -0,0 +1,37 @@
+package com.example.CalanderCanvas;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * RequestDeadlineAdvice:
+ * Marks responses that were cut short by the request deadline with "X-Result-Incomplete: true".
+ * The body has the usual shape; it just lacks whatever Canvas did not return in time.
+ */
+@ControllerAdvice
+public class RequestDeadlineAdvice implements ResponseBodyAdvice<Object> {
+
+    // Response header set when the result is partial.
+    public static final String INCOMPLETE_HEADER = "X-Result-Incomplete";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        RequestDeadline deadline = RequestDeadline.current();
+        if (deadline != null && deadline.isIncomplete()) {
+            response.getHeaders().set(INCOMPLETE_HEADER, "true");
+        }
+        return body;
+    }
+}
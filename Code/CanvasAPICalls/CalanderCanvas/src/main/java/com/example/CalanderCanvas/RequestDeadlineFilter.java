@@ -0,0 +1,59 @@
+package com.example.CalanderCanvas;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * RequestDeadlineFilter:
+ * Gives every incoming request a RequestDeadline for the duration of its handling.
+ *
+ * The budget is canvas.request.budget by default. A caller with its own deadline can send a shorter (or,
+ * up to canvas.request.max-budget, longer) budget in milliseconds in the X-Request-Budget-Ms header.
+ */
+@Component
+public class RequestDeadlineFilter extends OncePerRequestFilter {
+
+    // Header a caller can use to pass its remaining budget in milliseconds.
+    public static final String BUDGET_HEADER = "X-Request-Budget-Ms";
+
+    // Budget used when the caller does not send one.
+    private final Duration defaultBudget;
+
+    // Upper bound on a caller-provided budget.
+    private final Duration maxBudget;
+
+    public RequestDeadlineFilter(@Value("${canvas.request.budget:10s}") Duration defaultBudget,
+                                 @Value("${canvas.request.max-budget:60s}") Duration maxBudget) {
+        this.defaultBudget = defaultBudget;
+        this.maxBudget = maxBudget;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long budget = defaultBudget.toMillis();
+        String header = request.getHeader(BUDGET_HEADER);
+        if (header != null) {
+            try {
+                budget = Math.max(0, Math.min(Long.parseLong(header.trim()), maxBudget.toMillis()));
+            } catch (NumberFormatException e) {
+                // Ignore a malformed header and keep the default budget.
+            }
+        }
+
+        RequestDeadline.start(budget);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestDeadline.clear();
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package com.example.CalanderCanvas;
+
+import org.springframework.beans.factory.DisposableBean;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * RespSharedCache:
+ * A SharedCache on one or more Redis-protocol (RESP) servers, e.g. Redis or Valkey, spoken to directly over
+ * sockets so no client library is needed for the handful of commands used.
+ *
+ * Tenants are spread over the servers with a ConsistentHashRing, so all of a tenant's entries live on one
+ * server and adding a server only moves the tenants that land on it. Each entry is a key with an expiry
+ * (SET PX) whose value starts with the tenant generation it was stored under. The generation is a counter
+ * key: a lookup reads it together with the entry (MGET) and an invalidation advances it (INCR) and then
+ * PUBLISHes the tenant on the invalidation channel. Nothing is deleted, so there is no window in which a
+ * put from a fetch that started before the invalidation can slip in after it; older entries simply stop
+ * matching and expire. Every store renews the counter's expiry to the entry TTL, so the counter outlives
+ * every entry it guards. Every instance subscribes to the channel on every server and drops its local
+ * copies when a message arrives.
+ *
+ * A server that cannot be reached or sends a malformed reply is skipped for a few seconds: lookups miss and
+ * stores are dropped, so an unavailable cache slows the application down to uncached speed but never fails
+ * a request. An error reply (e.g. -OOM when the server is full) only fails the command it answers.
+ */
+public class RespSharedCache implements SharedCache, DisposableBean {
+
+    // Channel invalidated tenants are published on.
+    private static final String CHANNEL = "canvas:invalidate";
+
+    // Points per server on the hash ring.
+    private static final int VIRTUAL_NODES = 160;
+
+    // How long a server is skipped after a failed call, and how long a lost subscription waits to reconnect.
+    private static final long RETRY_MILLIS = 5_000;
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    // The servers, and the ring that routes tenants to them.
+    private final List<Node> nodes = new ArrayList<>();
+    private final ConsistentHashRing<Node> ring;
+
+    // Connect and read timeout for cache calls.
+    private final int timeoutMillis;
+
+    // Invalidation listeners.
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean closed;
+
+    /**
+     * @param addresses Servers as host:port.
+     * @param timeout   Connect and read timeout for each call.
+     * @param poolSize  Idle connections kept per server.
+     */
+    public RespSharedCache(List<String> addresses, Duration timeout, int poolSize) {
+        for (String address : addresses) {
+            int colon = address.lastIndexOf(':');
+            String host = colon > 0 ? address.substring(0, colon).trim() : address.trim();
+            int port = colon > 0 ? Integer.parseInt(address.substring(colon + 1).trim()) : 6379;
+            nodes.add(new Node(host, port, poolSize));
+        }
+        this.ring = new ConsistentHashRing<>(nodes, Node::toString, VIRTUAL_NODES);
+        this.timeoutMillis = (int) timeout.toMillis();
+
+        for (Node node : nodes) {
+            Thread subscriber = new Thread(() -> subscribe(node), "canvas-cache-subscriber-" + node);
+            subscriber.setDaemon(true);
+            subscriber.start();
+        }
+    }
+
+    @Override
+    public Lookup get(String tenant, String key) {
+        List<Object> replies = call(ring.route(tenant), List.<byte[][]>of(command("MGET", entryKey(tenant, key), generationKey(tenant))));
+        if (replies == null || !(replies.get(0) instanceof List<?> values) || values.size() != 2) {
+            // The generation is unknown, so whatever is fetched now is not stored (see put).
+            return new Lookup(null, -1);
+        }
+        long generation;
+        try {
+            generation = values.get(1) instanceof byte[] counter ? Long.parseLong(text(counter)) : 0;
+        } catch (NumberFormatException e) {
+            return new Lookup(null, -1);
+        }
+        if (values.get(0) instanceof byte[] stored && stored.length >= Long.BYTES
+                && ByteBuffer.wrap(stored).getLong() >= generation) {
+            return new Lookup(Arrays.copyOfRange(stored, Long.BYTES, stored.length), generation);
+        }
+        return new Lookup(null, generation);
+    }
+
+    @Override
+    public void put(String tenant, String key, byte[] value, long generation, Duration ttl) {
+        if (generation < 0) {
+            return;
+        }
+        byte[] stored = ByteBuffer.allocate(Long.BYTES + value.length).putLong(generation).put(value).array();
+        String millis = Long.toString(ttl.toMillis());
+        // Pipelined: one round trip for the entry and the renewed expiry of the tenant's generation counter.
+        call(ring.route(tenant), List.of(
+                command("SET", entryKey(tenant, key), stored, "PX", millis),
+                command("PEXPIRE", generationKey(tenant), millis)));
+    }
+
+    @Override
+    public void invalidate(String tenant) {
+        call(ring.route(tenant), List.of(
+                command("INCR", generationKey(tenant)),
+                command("PUBLISH", CHANNEL, tenant)));
+    }
+
+    @Override
+    public void onInvalidate(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void destroy() {
+        closed = true;
+        for (Node node : nodes) {
+            Connection connection;
+            while ((connection = node.idle.poll()) != null) {
+                connection.close();
+            }
+            Connection subscription = node.subscription;
+            if (subscription != null) {
+                subscription.close();
+            }
+        }
+    }
+
+    private static String entryKey(String tenant, String key) {
+        return "canvas:" + tenant + ":" + key;
+    }
+
+    private static String generationKey(String tenant) {
+        return "canvas:" + tenant + ":generation";
+    }
+
+    /**
+     * Sends the commands to a server in one write and reads their replies.
+     *
+     * @return The replies in command order (an error reply as a RespError), or null if the server is
+     *         unavailable or its reply could not be read.
+     */
+    private List<Object> call(Node node, List<byte[][]> commands) {
+        if (closed || node.downUntil > System.currentTimeMillis()) {
+            return null;
+        }
+        Connection connection = node.idle.poll();
+        try {
+            if (connection == null) {
+                connection = new Connection(node, timeoutMillis, timeoutMillis);
+            }
+            for (byte[][] command : commands) {
+                write(connection.out, command);
+            }
+            connection.out.flush();
+
+            List<Object> replies = new ArrayList<>(commands.size());
+            for (int i = 0; i < commands.size(); i++) {
+                replies.add(read(connection.in));
+            }
+            if (!node.idle.offer(connection)) {
+                connection.close();
+            }
+            for (Object reply : replies) {
+                if (reply instanceof RespError error) {
+                    System.err.println("Shared cache " + node + " refused a command: " + error.message());
+                }
+            }
+            return replies;
+        } catch (IOException | RuntimeException e) {
+            // The connection may hold unread replies (or a reply that could not be parsed), so it is never
+            // reused after a failure.
+            if (connection != null) {
+                connection.close();
+            }
+            node.downUntil = System.currentTimeMillis() + RETRY_MILLIS;
+            System.err.println("Shared cache " + node + " unavailable: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Keeps a subscription to the invalidation channel open on one server, reconnecting after failures.
+     */
+    private void subscribe(Node node) {
+        while (!closed) {
+            try {
+                // No read timeout: the subscription waits for messages indefinitely.
+                Connection connection = new Connection(node, timeoutMillis, 0);
+                node.subscription = connection;
+                write(connection.out, command("SUBSCRIBE", CHANNEL));
+                connection.out.flush();
+                while (!closed) {
+                    if (read(connection.in) instanceof List<?> message && message.size() == 3
+                            && "message".equals(text(message.get(0)))) {
+                        String tenant = text(message.get(2));
+                        for (Consumer<String> listener : listeners) {
+                            listener.accept(tenant);
+                        }
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                Connection subscription = node.subscription;
+                if (subscription != null) {
+                    subscription.close();
+                }
+                if (closed) {
+                    return;
+                }
+                System.err.println("Shared cache subscription to " + node + " lost: " + e.getMessage());
+                try {
+                    Thread.sleep(RETRY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Encodes a command's arguments (strings as UTF-8, byte arrays as they are).
+     */
+    private static byte[][] command(Object... args) {
+        byte[][] encoded = new byte[args.length][];
+        for (int i = 0; i < args.length; i++) {
+            encoded[i] = args[i] instanceof byte[] bytes ? bytes : args[i].toString().getBytes(StandardCharsets.UTF_8);
+        }
+        return encoded;
+    }
+
+    /**
+     * Writes a command as a RESP array of bulk strings.
+     */
+    private static void write(OutputStream out, byte[][] command) throws IOException {
+        out.write(("*" + command.length + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        for (byte[] arg : command) {
+            out.write(("$" + arg.length + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(arg);
+            out.write(CRLF);
+        }
+    }
+
+    /**
+     * Reads one RESP reply: a String (simple string), RespError (error), Long (integer), byte[] (bulk string),
+     * List (array) or null (null bulk string or array). Malformed lengths throw a NumberFormatException.
+     */
+    private static Object read(InputStream in) throws IOException {
+        int type = in.read();
+        if (type < 0) {
+            throw new EOFException("Connection closed");
+        }
+        String line = readLine(in);
+        switch (type) {
+            case '+':
+                return line;
+            case '-':
+                return new RespError(line);
+            case ':':
+                return Long.parseLong(line);
+            case '$': {
+                int length = Integer.parseInt(line);
+                if (length < 0) {
+                    return null;
+                }
+                byte[] data = in.readNBytes(length);
+                if (data.length < length) {
+                    throw new EOFException("Connection closed");
+                }
+                readLine(in);
+                return data;
+            }
+            case '*': {
+                int count = Integer.parseInt(line);
+                if (count < 0) {
+                    return null;
+                }
+                List<Object> items = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    items.add(read(in));
+                }
+                return items;
+            }
+            default:
+                throw new IOException("Unexpected RESP reply type '" + (char) type + "'");
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\r') {
+            if (b < 0) {
+                throw new EOFException("Connection closed");
+            }
+            line.write(b);
+        }
+        if (in.read() != '\n') {
+            throw new IOException("Malformed RESP line");
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String text(Object reply) {
+        return reply instanceof byte[] bytes ? new String(bytes, StandardCharsets.UTF_8) : String.valueOf(reply);
+    }
+
+    /**
+     * An error reply, e.g. "OOM command not allowed when used memory > 'maxmemory'".
+     */
+    private record RespError(String message) {
+    }
+
+    /**
+     * One cache server with its idle connections.
+     */
+    private static final class Node {
+        private final String host;
+        private final int port;
+        private final BlockingQueue<Connection> idle;
+
+        // Until when calls skip this server after a failure (epoch millis).
+        private volatile long downUntil;
+
+        // The open subscription connection, closed on shutdown.
+        private volatile Connection subscription;
+
+        private Node(String host, int port, int poolSize) {
+            this.host = host;
+            this.port = port;
+            this.idle = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+        }
+
+        @Override
+        public String toString() {
+            return host + ":" + port;
+        }
+    }
+
+    /**
+     * A socket to a server with buffered streams.
+     */
+    private static final class Connection {
+        private final Socket socket;
+        private final InputStream in;
+        private final OutputStream out;
+
+        private Connection(Node node, int connectTimeoutMillis, int readTimeoutMillis) throws IOException {
+            socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress(node.host, node.port), connectTimeoutMillis);
+                socket.setSoTimeout(readTimeoutMillis);
+                socket.setTcpNoDelay(true);
+                in = new BufferedInputStream(socket.getInputStream());
+                out = new BufferedOutputStream(socket.getOutputStream());
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already closed or broken; nothing to do.
+            }
+        }
+    }
+}
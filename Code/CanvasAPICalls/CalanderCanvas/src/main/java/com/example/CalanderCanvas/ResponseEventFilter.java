@@ -0,0 +1,42 @@
+package com.example.CalanderCanvas;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * ResponseEventFilter:
+ * Records every request to this server as a canvas.Response JFR event (see CanvasEvents). The event spans
+ * the whole handling, including serializing the body, so comparing it with the Canvas fetches and parses
+ * made for the request (they carry the same trace id, which this filter starts) shows how much time went to
+ * writing the response. Async dispatches (the SSE stream of /notifications) are not filtered, so a stream
+ * is recorded once, for its initial dispatch.
+ */
+@Component
+public class ResponseEventFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        CanvasEvents.ResponseEvent event = new CanvasEvents.ResponseEvent();
+        String trace = CanvasEvents.startTrace("request");
+        event.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            CanvasEvents.clearTrace();
+            if (event.shouldCommit()) {
+                event.trace = trace;
+                event.method = request.getMethod();
+                event.path = request.getRequestURI();
+                event.status = response.getStatus();
+            }
+            event.commit();
+        }
+    }
+}
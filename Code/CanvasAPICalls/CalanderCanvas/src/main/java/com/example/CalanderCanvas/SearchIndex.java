@@ -0,0 +1,338 @@
+package com.example.CalanderCanvas;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongFunction;
+
+/**
+ * SearchIndex:
+ * An in-memory inverted index over the names, course names and descriptions of every item in the dataset,
+ * for the /search endpoint.
+ *
+ * Every item gets a small integer document number. Each term maps to a posting list of the documents that
+ * contain it, kept as a sorted int[] with a parallel byte[] of the fields the term occurs in, so a posting
+ * costs five bytes instead of a boxed object. Terms are kept in a TreeMap, so every query word also matches
+ * as a prefix ("hist" finds "history"), which is what type-ahead needs.
+ *
+ * The index is a DatasetListener: each sync's removed and updated items are taken out of the posting lists
+ * of their old terms and the new versions are added, so it never has to be rebuilt. Document numbers of
+ * removed items are reused.
+ *
+ * The items themselves are not kept: a document is the item's key (see {@link ColumnarItemStore#keyOf}) and
+ * its due date for ranking, and the items of the best hits are decoded from the dataset when a query returns.
+ */
+@Component
+public class SearchIndex implements DatasetListener {
+
+    // Marks a free document number in documentDue.
+    private static final long FREE = Long.MIN_VALUE;
+
+    // Sorts undated items after every dated one.
+    private static final long UNDATED = Long.MAX_VALUE;
+
+    // Field flags stored per posting (see fieldScore for how they rank).
+    private static final byte NAME = 1;
+    private static final byte COURSE = 2;
+    private static final byte DESCRIPTION = 4;
+
+    // Term -> documents containing it.
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+
+    // Key and due date (epoch seconds, UNDATED or FREE) of the item per document number, and each item's
+    // document number by key.
+    private long[] documentKeys = new long[64];
+    private long[] documentDue = new long[64];
+    private final KeyTable documentByKey = new KeyTable(64);
+
+    // Document numbers freed by removed items, reused before documents grows; and the next unused number.
+    private int[] freeDocuments = new int[16];
+    private int freeCount;
+    private int nextDocument;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Where the hits are decoded.
+    private final CanvasDataset dataset;
+
+    public SearchIndex(CanvasDataset dataset) {
+        this.dataset = dataset;
+    }
+
+    @Override
+    public void onDatasetChange(DatasetChange change) {
+        lock.writeLock().lock();
+        try {
+            for (CanvasItem item : change.removed()) {
+                remove(item);
+            }
+            for (DatasetChange.Update update : change.updated()) {
+                remove(update.before());
+                add(update.after());
+            }
+            for (CanvasItem item : change.added()) {
+                add(item);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the items matching every word of the query, each word matching as a prefix of a word in the
+     * item's name, course name or description.
+     * Items are ranked by where the words matched (name before course name before description), then by
+     * due date, with undated items last.
+     *
+     * @param query The search text, e.g. "hist ess" for a history essay.
+     * @param limit The maximum number of items to return.
+     * @return Up to {@code limit} matching items, best first; empty if the query has no words.
+     */
+    public List<CanvasItem> search(String query, int limit) {
+        List<String> words = new ArrayList<>(tokenize(query));
+        if (words.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        return dataset.read(decode -> {
+            lock.readLock().lock();
+            try {
+                return search(words, limit, decode);
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    private List<CanvasItem> search(List<String> words, int limit, LongFunction<CanvasItem> decode) {
+        // Per document: how many query words it has matched so far, its summed score, and its score for the
+        // current word (a word can match through several terms, e.g. as a prefix; its best field counts).
+        int capacity = nextDocument;
+        int[] matched = new int[capacity];
+        int[] score = new int[capacity];
+        int[] wordScore = new int[capacity];
+
+        for (int w = 0; w < words.size(); w++) {
+            String word = words.get(w);
+            SortedMap<String, Postings> prefixed = terms.subMap(word, word + Character.MAX_VALUE);
+            for (Postings postings : prefixed.values()) {
+                for (int i = 0; i < postings.size; i++) {
+                    int doc = postings.documents[i];
+                    if (matched[doc] != w) {
+                        // Already matched this word (matched[doc] == w + 1) or missed an earlier word.
+                        if (matched[doc] == w + 1) {
+                            int fieldScore = fieldScore(postings.fields[i]);
+                            if (fieldScore > wordScore[doc]) {
+                                score[doc] += fieldScore - wordScore[doc];
+                                wordScore[doc] = fieldScore;
+                            }
+                        }
+                        continue;
+                    }
+                    matched[doc] = w + 1;
+                    wordScore[doc] = fieldScore(postings.fields[i]);
+                    score[doc] += wordScore[doc];
+                }
+            }
+        }
+
+        List<Integer> hits = new ArrayList<>();
+        for (int doc = 0; doc < capacity; doc++) {
+            if (matched[doc] == words.size() && documentDue[doc] != FREE) {
+                hits.add(doc);
+            }
+        }
+        hits.sort(Comparator.<Integer>comparingInt(doc -> -score[doc]).thenComparingLong(doc -> documentDue[doc]));
+
+        List<CanvasItem> results = new ArrayList<>(Math.min(limit, hits.size()));
+        for (int i = 0; i < hits.size() && results.size() < limit; i++) {
+            CanvasItem item = decode.apply(documentKeys[hits.get(i)]);
+            if (item != null) {
+                results.add(item);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns the index size and an estimate of the memory it uses, for checking the per-item cost.
+     * The items themselves are only in the dataset's store and not counted.
+     */
+    public Stats getStats() {
+        lock.readLock().lock();
+        try {
+            long postings = 0;
+            // Per term: TreeMap entry (40) + String (24 + 16 array header + one byte per Latin-1 char)
+            // + Postings object (24) + int[] and byte[] headers (2 x 16) + their capacity.
+            long bytes = 0;
+            for (Map.Entry<String, Postings> entry : terms.entrySet()) {
+                Postings p = entry.getValue();
+                postings += p.size;
+                bytes += 40 + 40 + entry.getKey().length() + 24 + 32 + 5L * p.documents.length;
+            }
+            // Per document number: its key and due date (16); plus the key table and the free list.
+            bytes += 16L * documentKeys.length + 2 * 16 + documentByKey.estimatedBytes() + 4L * freeDocuments.length;
+            int items = documentByKey.size();
+            return new Stats(items, terms.size(), postings, bytes, items == 0 ? 0 : bytes / items);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long estimatedBytes() {
+        return getStats().estimatedBytes();
+    }
+
+    /**
+     * Size of the index.
+     *
+     * @param items          Number of indexed items.
+     * @param terms          Number of distinct terms.
+     * @param postings       Number of (term, item) pairs.
+     * @param estimatedBytes Estimated memory used by the index structures (with compressed object pointers).
+     * @param bytesPerItem   estimatedBytes divided by items.
+     */
+    public record Stats(int items, int terms, long postings, long estimatedBytes, long bytesPerItem) {
+    }
+
+    private void add(CanvasItem item) {
+        int doc = freeCount > 0 ? freeDocuments[--freeCount] : nextDocument++;
+        if (doc >= documentKeys.length) {
+            documentKeys = Arrays.copyOf(documentKeys, documentKeys.length * 2);
+            documentDue = Arrays.copyOf(documentDue, documentDue.length * 2);
+        }
+        long key = ColumnarItemStore.keyOf(item.id());
+        documentKeys[doc] = key;
+        documentDue[doc] = item.dueAt() != null ? item.dueAt().getEpochSecond() : UNDATED;
+        documentByKey.put(key, doc);
+
+        for (Map.Entry<String, Byte> term : termsOf(item).entrySet()) {
+            terms.computeIfAbsent(term.getKey(), t -> new Postings()).add(doc, term.getValue());
+        }
+    }
+
+    private void remove(CanvasItem item) {
+        long key = ColumnarItemStore.keyOf(item.id());
+        int doc = documentByKey.get(key);
+        if (doc < 0) {
+            return;
+        }
+        documentByKey.remove(key);
+        // A removal or update carries the item as it was before the sync, the version its postings came from.
+        for (String term : termsOf(item).keySet()) {
+            Postings postings = terms.get(term);
+            if (postings != null && postings.remove(doc) && postings.size == 0) {
+                terms.remove(term);
+            }
+        }
+        documentDue[doc] = FREE;
+        if (freeCount == freeDocuments.length) {
+            freeDocuments = Arrays.copyOf(freeDocuments, freeCount * 2);
+        }
+        freeDocuments[freeCount++] = doc;
+    }
+
+    /**
+     * Returns the terms of an item with the fields each one occurs in.
+     */
+    private static Map<String, Byte> termsOf(CanvasItem item) {
+        Map<String, Byte> terms = new HashMap<>();
+        addTerms(terms, item.name(), NAME);
+        addTerms(terms, item.courseName(), COURSE);
+        addTerms(terms, item.description(), DESCRIPTION);
+        return terms;
+    }
+
+    private static void addTerms(Map<String, Byte> terms, String text, byte field) {
+        if (text != null) {
+            for (String term : tokenize(text)) {
+                terms.merge(term, field, (a, b) -> (byte) (a | b));
+            }
+        }
+    }
+
+    /**
+     * Splits text into lower-case words of letters and digits, in order of first occurrence, without duplicates.
+     */
+    static Set<String> tokenize(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        if (text == null) {
+            return words;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Score of a match in the given fields: the best field wins.
+     */
+    private static int fieldScore(byte fields) {
+        if ((fields & NAME) != 0) {
+            return 4;
+        }
+        if ((fields & COURSE) != 0) {
+            return 2;
+        }
+        return 1;
+    }
+
+    /**
+     * The documents containing one term, sorted by document number, with the fields the term occurs in.
+     */
+    private static final class Postings {
+        private int[] documents = new int[2];
+        private byte[] fields = new byte[2];
+        private int size;
+
+        private void add(int doc, byte field) {
+            int at = Arrays.binarySearch(documents, 0, size, doc);
+            if (at >= 0) {
+                fields[at] |= field;
+                return;
+            }
+            at = -at - 1;
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+                fields = Arrays.copyOf(fields, size * 2);
+            }
+            System.arraycopy(documents, at, documents, at + 1, size - at);
+            System.arraycopy(fields, at, fields, at + 1, size - at);
+            documents[at] = doc;
+            fields[at] = field;
+            size++;
+        }
+
+        private boolean remove(int doc) {
+            int at = Arrays.binarySearch(documents, 0, size, doc);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(documents, at + 1, documents, at, size - at - 1);
+            System.arraycopy(fields, at + 1, fields, at, size - at - 1);
+            size--;
+            return true;
+        }
+    }
+}
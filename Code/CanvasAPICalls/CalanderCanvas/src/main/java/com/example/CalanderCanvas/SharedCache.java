@@ -0,0 +1,57 @@
+package com.example.CalanderCanvas;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * SharedCache:
+ * The remote tier of CanvasResponseCache, shared by every instance of the application, so a Canvas response
+ * fetched by one instance is reused by the others instead of each instance crawling Canvas itself.
+ *
+ * Entries belong to a tenant (one Canvas access token). Each tenant has a generation, which an invalidation
+ * advances: a lookup reports the generation it saw, the value fetched after a miss is stored with it, and
+ * entries stored with an older generation than the current one are misses. A fetch that was already running
+ * when the tenant was invalidated therefore cannot put its stale response back. Every instance is told about
+ * an invalidation so local copies are dropped too.
+ * They must not throw when the remote store is unavailable: a failed lookup is a miss and a failed store or
+ * invalidation is skipped, so the application keeps working against Canvas directly.
+ *
+ * AppConfig picks the implementation: RespSharedCache for Redis-protocol servers listed in
+ * canvas.cache.remote.nodes, or InMemorySharedCache as a local stand-in when none are configured.
+ */
+public interface SharedCache {
+
+    /**
+     * @return The stored value (null on a miss, including when the remote store cannot be reached) and the
+     *         tenant's current generation.
+     */
+    Lookup get(String tenant, String key);
+
+    /**
+     * Stores a value for the given time.
+     *
+     * @param generation The generation reported by the lookup that missed before the value was fetched.
+     */
+    void put(String tenant, String key, byte[] value, long generation, Duration ttl);
+
+    /**
+     * Advances a tenant's generation, so its existing entries become misses, and notifies the listeners of
+     * every instance, this one included.
+     */
+    void invalidate(String tenant);
+
+    /**
+     * Registers a listener called with the tenant whenever any instance invalidates one.
+     */
+    void onInvalidate(Consumer<String> listener);
+
+    /**
+     * Result of {@link #get}.
+     *
+     * @param value      The stored value, or null on a miss.
+     * @param generation The tenant's generation at the time of the lookup, or -1 if it could not be read;
+     *                   a value stored with -1 is dropped.
+     */
+    record Lookup(byte[] value, long generation) {
+    }
+}
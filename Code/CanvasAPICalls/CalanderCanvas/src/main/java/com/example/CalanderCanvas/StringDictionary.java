@@ -0,0 +1,180 @@
+package com.example.CalanderCanvas;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * StringDictionary:
+ * Stores each distinct string once, as UTF-8 bytes in one growing buffer, and hands out small int ids for
+ * them. ColumnarItemStore keeps these ids in its string columns, so a course name shared by hundreds of
+ * items costs four bytes per item instead of a String reference plus, often, its own String copy.
+ *
+ * Lookups by value use an open-addressing hash table of ids (linear probing) that compares against the
+ * buffer directly, so no String objects are kept on the heap at all. The buffer can be a direct
+ * (off-heap) ByteBuffer, which takes the text out of the garbage-collected heap entirely.
+ *
+ * Strings are never removed; the owning store rebuilds its dictionary when it compacts. Not thread-safe.
+ */
+public class StringDictionary {
+
+    // Id used for null, and returned by find() for a string that is not in the dictionary.
+    public static final int NULL = -1;
+    public static final int ABSENT = -2;
+
+    // UTF-8 bytes of every string, back to back; the first `used` bytes are filled.
+    private ByteBuffer bytes;
+    private int used;
+
+    // String i occupies bytes [offsets[i], offsets[i + 1]).
+    private int[] offsets = new int[17];
+    private int count;
+
+    // Open-addressing table of id + 1 (0 = empty slot); its length is a power of two and it is at most three
+    // quarters full.
+    private int[] table = new int[32];
+
+    // Whether the buffer is allocated off-heap.
+    private final boolean offHeap;
+
+    public StringDictionary(boolean offHeap) {
+        this.offHeap = offHeap;
+        this.bytes = allocate(1024);
+    }
+
+    /**
+     * Returns the id of a string, adding it if it is new.
+     *
+     * @return The id, or NULL for null.
+     */
+    public int intern(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        int slot = slotOf(utf8);
+        if (table[slot] != 0) {
+            return table[slot] - 1;
+        }
+
+        if (used + utf8.length > bytes.capacity()) {
+            ByteBuffer grown = allocate(Math.max(bytes.capacity() + (bytes.capacity() >> 1), used + utf8.length));
+            grown.put(0, bytes, 0, used);
+            bytes = grown;
+        }
+        bytes.put(used, utf8);
+        used += utf8.length;
+        if (count + 2 > offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length + (offsets.length >> 1));
+        }
+        offsets[count + 1] = used;
+
+        int id = count++;
+        table[slot] = id + 1;
+        if (count * 4 > table.length * 3) {
+            rehash();
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of a string without adding it.
+     *
+     * @return The id, NULL for null, or ABSENT if the string is not in the dictionary.
+     */
+    public int find(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        int slot = slotOf(value.getBytes(StandardCharsets.UTF_8));
+        return table[slot] != 0 ? table[slot] - 1 : ABSENT;
+    }
+
+    /**
+     * @return The string with the given id, or null for NULL.
+     */
+    public String get(int id) {
+        if (id < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[offsets[id + 1] - offsets[id]];
+        bytes.get(offsets[id], utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return The number of distinct strings.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return The memory held by the dictionary: buffer, offsets and hash table (plus object headers).
+     */
+    public long estimatedBytes() {
+        return bytes.capacity() + 4L * offsets.length + 4L * table.length + 3 * 16 + 32;
+    }
+
+    /**
+     * @return Whether the strings are stored off-heap.
+     */
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * Finds the slot holding the given bytes, or the empty slot where they would go.
+     */
+    private int slotOf(byte[] utf8) {
+        int mask = table.length - 1;
+        int slot = mix(Arrays.hashCode(utf8)) & mask;
+        while (table[slot] != 0 && !equalsAt(table[slot] - 1, utf8)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private boolean equalsAt(int id, byte[] utf8) {
+        int start = offsets[id];
+        if (offsets[id + 1] - start != utf8.length) {
+            return false;
+        }
+        for (int i = 0; i < utf8.length; i++) {
+            if (bytes.get(start + i) != utf8[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        int[] old = table;
+        table = new int[old.length * 2];
+        int mask = table.length - 1;
+        for (int entry : old) {
+            if (entry != 0) {
+                int id = entry - 1;
+                byte[] utf8 = new byte[offsets[id + 1] - offsets[id]];
+                bytes.get(offsets[id], utf8);
+                int slot = mix(Arrays.hashCode(utf8)) & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = entry;
+            }
+        }
+    }
+
+    /**
+     * Spreads the hash bits so that linear probing does not cluster on similar strings.
+     */
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return offHeap ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+}
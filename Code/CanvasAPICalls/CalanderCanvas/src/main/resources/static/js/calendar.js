@@ -0,0 +1,193 @@
+//makes sure the script is only run once the HTML is fully loaded
+document.addEventListener('DOMContentLoaded', () => {
+    setupCalendarControls();
+    showPeriod(currentKey());
+    subscribeToNotifications();
+});
+
+//Readable labels for the notification types the server pushes
+const NOTIFICATION_LABELS = {
+    NEW_ITEM: 'New',
+    GRADE_POSTED: 'Grade posted',
+    GRADE_CHANGED: 'Grade changed',
+    DUE_DATE_MOVED: 'Due date moved',
+    ITEM_UPDATED: 'Updated',
+    ITEM_REMOVED: 'Removed',
+    EVENT_CANCELLED: 'Event cancelled'
+};
+
+const WEEKDAYS = ['Mon', 'Tue', 'Wed', 'Thu', 'Fri', 'Sat', 'Sun'];
+
+//Which view is shown ('week' or 'month') and the key of the period shown ("2026-W42" or "2026-10")
+let mode = 'week';
+let shownPeriod = null;
+
+//Views already fetched (or being fetched), by URL. The server's ETags and Cache-Control let the browser
+//revalidate cheaply, and this map makes going back and forth between periods instant.
+const periods = new Map();
+
+//event listeners for the navigation buttons
+function setupCalendarControls() {
+    document.getElementById('prev-btn').addEventListener('click', () => shownPeriod && showPeriod(shownPeriod.previous));
+    document.getElementById('next-btn').addEventListener('click', () => shownPeriod && showPeriod(shownPeriod.next));
+    document.getElementById('today-btn').addEventListener('click', () => showPeriod(currentKey()));
+    document.getElementById('mode-btn').addEventListener('click', () => {
+        mode = mode === 'week' ? 'month' : 'week';
+        document.getElementById('mode-btn').textContent = mode === 'week' ? 'Month view' : 'Week view';
+        showPeriod(currentKey());
+    });
+}
+
+//Key of the period containing today in the current mode
+function currentKey() {
+    const today = new Date();
+    if (mode === 'month') {
+        return today.getFullYear() + '-' + String(today.getMonth() + 1).padStart(2, '0');
+    }
+    //ISO week: the week belongs to the year of its Thursday
+    const thursday = new Date(Date.UTC(today.getFullYear(), today.getMonth(), today.getDate()));
+    thursday.setUTCDate(thursday.getUTCDate() + 3 - (thursday.getUTCDay() + 6) % 7);
+    const firstThursday = new Date(Date.UTC(thursday.getUTCFullYear(), 0, 4));
+    const week = 1 + Math.round(((thursday - firstThursday) / 86400000 - 3 + (firstThursday.getUTCDay() + 6) % 7) / 7);
+    return thursday.getUTCFullYear() + '-W' + String(week).padStart(2, '0');
+}
+
+//Fetches a period once; later calls get the same promise.
+//After a change on the server the browser is told to revalidate, which costs a 304 for unchanged periods.
+let revalidate = false;
+function fetchPeriod(key) {
+    const url = '/calendar/' + mode + '/' + key;
+    if (!periods.has(url)) {
+        const request = fetch(url, {cache: revalidate ? 'no-cache' : 'default'}).then(response => {
+            if (!response.ok) {
+                throw new Error('Calendar request failed: ' + response.status);
+            }
+            return response.json();
+        });
+        //A failed request is forgotten so it is retried next time
+        request.catch(() => periods.delete(url));
+        periods.set(url, request);
+    }
+    return periods.get(url);
+}
+
+//Shows a period and prefetches its neighbours, so the next click is answered from memory
+function showPeriod(key) {
+    fetchPeriod(key)
+        .then(period => {
+            shownPeriod = period;
+            renderPeriod(period);
+            fetchPeriod(period.previous).catch(() => {});
+            fetchPeriod(period.next).catch(() => {});
+        })
+        .catch(error => {
+            console.error('Error loading calendar:', error);
+            document.getElementById('calendar-container').textContent = 'Could not load the calendar. Try again.';
+        });
+}
+
+//Renders the days of a week or month
+function renderPeriod(period) {
+    document.getElementById('calendar-title').textContent = (mode === 'week' ? 'Week ' : 'Month ') + period.key;
+    document.getElementById('calendar-totals').textContent =
+        period.items + ' items, ' + period.pointsEarned + ' / ' + period.pointsPossible + ' points';
+
+    const container = document.getElementById('calendar-container');
+    container.replaceChildren();
+    WEEKDAYS.forEach(name => {
+        const heading = document.createElement('div');
+        heading.className = 'calendar-weekday';
+        heading.textContent = name;
+        container.appendChild(heading);
+    });
+
+    //A month starts on any weekday, so leave the cells before its first day empty
+    const offset = (new Date(period.start + 'T00:00:00').getDay() + 6) % 7;
+    for (let i = 0; i < offset; i++) {
+        const blank = document.createElement('div');
+        blank.className = 'calendar-day calendar-blank';
+        container.appendChild(blank);
+    }
+    period.days.forEach(day => container.appendChild(renderDay(day)));
+}
+
+//Renders one day with its items and point totals
+function renderDay(day) {
+    const cell = document.createElement('div');
+    cell.className = 'calendar-day';
+
+    const date = document.createElement('div');
+    date.className = 'calendar-date';
+    date.textContent = day.date.substring(5);
+    cell.appendChild(date);
+
+    const list = document.createElement('ul');
+    day.items.forEach(item => {
+        const entry = document.createElement('li');
+        entry.className = 'calendar-item calendar-' + item.type.toLowerCase();
+        const time = new Date(item.dueAt).toLocaleTimeString([], {hour: '2-digit', minute: '2-digit'});
+        let text = time + ' ' + item.name;
+        if (item.courseName) {
+            text += ' (' + item.courseName + ')';
+        }
+        if (item.pointsPossible != null) {
+            text += ' - ' + (item.pointsEarned != null ? item.pointsEarned : '-') + ' / ' + item.pointsPossible;
+        }
+        entry.textContent = text;
+        list.appendChild(entry);
+    });
+    cell.appendChild(list);
+
+    if (day.pointsPossible > 0) {
+        const totals = document.createElement('div');
+        totals.className = 'calendar-points';
+        totals.textContent = day.pointsEarned + ' / ' + day.pointsPossible + ' points';
+        cell.appendChild(totals);
+    }
+    return cell;
+}
+
+//Subscribes to the server's push channel instead of polling the whole dataset.
+//EventSource reconnects by itself if the connection drops.
+function subscribeToNotifications() {
+    const source = new EventSource('/notifications');
+    Object.keys(NOTIFICATION_LABELS).forEach(type => {
+        source.addEventListener(type, event => {
+            showNotification(JSON.parse(event.data));
+            refreshShownPeriod();
+        });
+    });
+    //RESYNC means notifications were missed; the calendar is reloaded all the same
+    source.addEventListener('RESYNC', refreshShownPeriod);
+}
+
+//Something changed on the server: forget the fetched periods and reload the one shown.
+//One sync can push many notifications, so the reload waits until they stop arriving.
+let refreshTimer = null;
+function refreshShownPeriod() {
+    clearTimeout(refreshTimer);
+    refreshTimer = setTimeout(() => {
+        periods.clear();
+        revalidate = true;
+        if (shownPeriod) {
+            showPeriod(shownPeriod.key);
+        }
+    }, 500);
+}
+
+//Adds a notification to the top of the list
+function showNotification(notification) {
+    const item = notification.item;
+    const entry = document.createElement('li');
+    let text = NOTIFICATION_LABELS[notification.type] + ': ' + item.name;
+    if (item.courseName) {
+        text += ' (' + item.courseName + ')';
+    }
+    if (notification.type === 'GRADE_POSTED' || notification.type === 'GRADE_CHANGED') {
+        text += ' - ' + item.pointsEarned + ' / ' + item.pointsPossible;
+    }
+    entry.textContent = text;
+
+    const list = document.getElementById('notification-list');
+    list.insertBefore(entry, list.firstChild);
+}
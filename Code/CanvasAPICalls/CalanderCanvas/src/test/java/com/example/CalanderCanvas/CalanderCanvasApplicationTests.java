@@ -3,7 +3,8 @@ package com.example.CalanderCanvas;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// Eager initialization so the test still wires every bean, not only the ones used at startup.
+@SpringBootTest(properties = "spring.main.lazy-initialization=false")
 class CalanderCanvasApplicationTests {
 
 	@Test
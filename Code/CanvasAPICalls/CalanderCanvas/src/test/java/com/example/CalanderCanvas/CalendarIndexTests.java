@@ -0,0 +1,66 @@
+package com.example.CalanderCanvas;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+class CalendarIndexTests {
+
+	private final StaticListableBeanFactory listeners = new StaticListableBeanFactory();
+	private final CanvasDataset dataset = new CanvasDataset(listeners.getBeanProvider(DatasetListener.class), 100, false);
+	private final CalendarIndex index = new CalendarIndex(dataset, "UTC");
+
+	CalendarIndexTests() {
+		listeners.addBean("index", index);
+	}
+
+	@Test
+	void bucketsDaysAndVersionsOnlyChangedPeriods() {
+		CanvasItem a = TestItems.assignment("assignment:1", "1", "2026-10-13T23:59:00Z", 8.0);
+		CanvasItem b = TestItems.assignment("assignment:2", "1", "2026-10-13T12:00:00Z", null);
+		CanvasItem c = TestItems.assignment("assignment:3", "1", "2026-10-20T12:00:00Z", null);
+		CanvasItem event = TestItems.event("event:5", "Lecture", "2026-10-15T10:00:00Z");
+		dataset.apply(List.of(a, b, c, event), Set.of());
+
+		CalendarIndex.Period week = index.week(LocalDate.of(2026, 10, 12));
+		assertEquals("2026-W42", week.key());
+		assertEquals("2026-W41", week.previous());
+		assertEquals("2026-W43", week.next());
+		assertEquals(7, week.days().size());
+		assertEquals(List.of(b, a), week.days().get(1).items());
+		assertEquals(20.0, week.days().get(1).pointsPossible());
+		assertEquals(8.0, week.days().get(1).pointsEarned());
+		assertEquals(3, week.items());
+		assertEquals(1, week.version());
+
+		// Moving c into week 42 changes weeks 42 and 43; week 44 never had items.
+		CanvasItem moved = TestItems.assignment("assignment:3", "1", "2026-10-16T12:00:00Z", null);
+		dataset.apply(List.of(a, b, moved, event), Set.of());
+		assertEquals(2, index.week(LocalDate.of(2026, 10, 12)).version());
+		assertEquals(2, index.week(LocalDate.of(2026, 10, 19)).version());
+		assertEquals(0, index.week(LocalDate.of(2026, 10, 19)).items());
+		assertEquals(0, index.week(LocalDate.of(2026, 10, 26)).version());
+		assertEquals(4, index.week(LocalDate.of(2026, 10, 12)).items());
+
+		dataset.apply(List.of(b, moved, event), Set.of());
+		CalendarIndex.Period month = index.month(YearMonth.of(2026, 10));
+		assertEquals(31, month.days().size());
+		assertEquals(3, month.items());
+		assertEquals(3, month.version());
+		assertEquals(0.0, month.pointsEarned());
+	}
+
+	@Test
+	void namesIsoWeeksAcrossYears() {
+		assertEquals("2026-W53", CalendarIndex.weekKey(LocalDate.of(2026, 12, 31)));
+		assertEquals("2026-W53", CalendarIndex.weekKey(LocalDate.of(2027, 1, 3)));
+		assertEquals("2027-W01", CalendarIndex.weekKey(LocalDate.of(2027, 1, 4)));
+		assertEquals("2026-W01", index.week(LocalDate.of(2025, 12, 29)).key());
+	}
+}
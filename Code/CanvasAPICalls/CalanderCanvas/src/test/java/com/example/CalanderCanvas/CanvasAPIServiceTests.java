@@ -0,0 +1,91 @@
+package com.example.CalanderCanvas;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class CanvasAPIServiceTests {
+
+	// Reserved characters that must reach Canvas unchanged.
+	private static final String TOKEN = "7~ab+c/d=e&f";
+
+	private final CanvasStub canvas = new CanvasStub();
+	private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+	CanvasAPIServiceTests() throws IOException {
+		executor.initialize();
+	}
+
+	@AfterEach
+	void stop() {
+		canvas.close();
+		executor.shutdown();
+	}
+
+	private CanvasAPIService service(String canvasUrl) {
+		CanvasResponseCache cache = new CanvasResponseCache(new InMemorySharedCache(), new ObjectMapper(), false, Duration.ofMinutes(5), 100);
+		HedgedFetcher fetcher = new HedgedFetcher(new RestTemplate(), executor, cache, 16, 20, Duration.ofMillis(50), 0, 10);
+		return new CanvasAPIService(fetcher, new ObjectMapper(), cache, TOKEN, canvasUrl);
+	}
+
+	@Test
+	void pagesThroughLinkHeadersBelowABaseUrlWithATrailingSlash() {
+		// Canvas links the next page by its absolute URL, without the token and without a doubled slash.
+		List<String> tokens = new CopyOnWriteArrayList<>();
+		canvas.route("/api/v1/planner/items", (call, uri) -> {
+			tokens.add(UriComponentsBuilder.fromUri(uri).build(true).getQueryParams().getFirst("access_token"));
+			CanvasStub.Reply page = CanvasStub.Reply.json("[{\"plannable_type\":\"assignment\",\"plannable_id\":" + call
+					+ ",\"plannable_date\":\"2026-10-2" + call + "T12:00:00Z\",\"plannable\":{\"title\":\"HW " + call + "\"}}]");
+			String first = "<" + canvas.base() + "/api/v1/planner/items?page=1&per_page=100>; rel=\"first\"";
+			return call < 3
+					? page.linking("<" + canvas.base() + "/api/v1/planner/items?page=" + (call + 1) + "&per_page=100>; rel=\"next\", " + first)
+					: page.linking(first);
+		});
+
+		List<CanvasItem> items = service(canvas.base() + "/").getPlannerItems(LocalDate.of(2026, 10, 19), LocalDate.of(2026, 10, 25));
+
+		assertEquals(List.of("HW 1", "HW 2", "HW 3"), items.stream().map(CanvasItem::name).toList());
+		assertEquals(3, canvas.calls("/api/v1/planner/items"));
+		// The first page's token was encoded by the URL builder, the later ones by nextPageUrl; all must match.
+		String encoded = "7~ab%2Bc%2Fd%3De%26f";
+		assertEquals(List.of(encoded, encoded, encoded), tokens);
+	}
+
+	@Test
+	void followsOnlyLinksToTheShippedCanvasOrigin() throws IOException {
+		Properties shipped = new Properties();
+		try (InputStream in = getClass().getResourceAsStream("/application.properties")) {
+			shipped.load(in);
+		}
+		CanvasAPIService service = service(shipped.getProperty("canvas.url"));
+
+		assertEquals("https://canvas.beta.instructure.com/api/v1/courses?page=2&access_token=7~ab%2Bc%2Fd%3De%26f",
+				service.nextPageUrl(link("https://canvas.beta.instructure.com/api/v1/courses?page=2")));
+		assertEquals("https://canvas.beta.instructure.com:443/api/v1/courses?access_token=7~ab%2Bc%2Fd%3De%26f",
+				service.nextPageUrl(link("https://canvas.beta.instructure.com:443/api/v1/courses")));
+		assertThrows(IllegalStateException.class, () -> service.nextPageUrl(link("http://canvas.beta.instructure.com/api/v1/courses?page=2")));
+		assertThrows(IllegalStateException.class, () -> service.nextPageUrl(link("https://canvas.beta.instructure.com.evil.test/api/v1/courses")));
+	}
+
+	private static HttpHeaders link(String next) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+		return headers;
+	}
+}
@@ -0,0 +1,51 @@
+package com.example.CalanderCanvas;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+class CanvasDatasetTests {
+
+	private final CanvasDataset dataset = new CanvasDataset(
+			new StaticListableBeanFactory().getBeanProvider(DatasetListener.class), 100, false);
+
+	@Test
+	void changesSinceReturnsOnlyDifferences() {
+		CanvasItem a = TestItems.assignment("assignment:1", "1", "2026-10-01T12:00:00Z", null);
+		CanvasItem b = TestItems.assignment("assignment:2", "1", "2026-10-02T12:00:00Z", null);
+		dataset.apply(List.of(a, b), Set.of());
+
+		ChangeFeed initial = dataset.changesSince(0);
+		assertTrue(initial.full());
+		assertEquals(2, initial.upserts().size());
+
+		CanvasItem graded = TestItems.assignment("assignment:1", "1", "2026-10-01T12:00:00Z", 9.0);
+		DatasetChange change = dataset.apply(List.of(graded), Set.of());
+		assertEquals(1, change.updated().size());
+		assertEquals(1, change.removed().size());
+
+		ChangeFeed diff = dataset.changesSince(initial.version());
+		assertFalse(diff.full());
+		assertEquals(List.of(graded), diff.upserts());
+		assertEquals(List.of("assignment:2"), diff.removed());
+
+		assertTrue(dataset.changesSince(diff.version()).upserts().isEmpty());
+	}
+
+	@Test
+	void incompleteCourseKeepsItsItems() {
+		CanvasItem a = TestItems.assignment("assignment:1", "1", "2026-10-01T12:00:00Z", 5.0);
+		dataset.apply(List.of(a), Set.of());
+
+		CanvasItem failedLookup = TestItems.assignment("assignment:1", "1", "2026-10-01T12:00:00Z", null);
+		assertTrue(dataset.apply(List.of(failedLookup), Set.of("1")).isEmpty());
+		assertTrue(dataset.apply(List.of(), Set.of("1")).isEmpty());
+		assertEquals(List.of(a), dataset.snapshot());
+	}
+}
@@ -0,0 +1,86 @@
+package com.example.CalanderCanvas;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class CanvasResponseCacheTests {
+
+	private static final String URL = "http://canvas/api/v1/calendar_events?access_token=secret&per_page=100";
+
+	// Two instances sharing one stand-in for the remote tier.
+	private final SharedCache shared = new InMemorySharedCache();
+	private final CanvasResponseCache nodeA = new CanvasResponseCache(shared, new ObjectMapper(), true, Duration.ofMinutes(5), 100);
+	private final CanvasResponseCache nodeB = new CanvasResponseCache(shared, new ObjectMapper(), true, Duration.ofMinutes(5), 100);
+
+	@Test
+	void sharesResponsesAndInvalidatesEveryInstance() {
+		ResponseEntity<String> response = ResponseEntity.ok()
+				.header(HttpHeaders.LINK, "<http://canvas/api/v1/calendar_events?page=2>; rel=\"next\"")
+				.body("[{\"id\":5,\"title\":\"Lecture\"}]");
+		nodeA.put(URL, response, nodeA.getShared(URL));
+
+		assertNull(nodeB.getLocal(URL));
+		ResponseEntity<String> fromShared = nodeB.getShared(URL).response();
+		assertNotNull(fromShared);
+		assertEquals(response.getBody(), fromShared.getBody());
+		assertEquals(response.getHeaders().getFirst(HttpHeaders.LINK), fromShared.getHeaders().getFirst(HttpHeaders.LINK));
+		assertNotNull(nodeB.getLocal(URL));
+
+		nodeB.invalidate("secret");
+		assertNull(nodeA.getLocal(URL));
+		assertNull(nodeB.getLocal(URL));
+		assertNull(nodeA.getShared(URL).response());
+	}
+
+	@Test
+	void fetchStartedBeforeAnInvalidationIsNotStored() {
+		ResponseEntity<String> stale = ResponseEntity.ok("[{\"id\":5,\"title\":\"Old title\"}]");
+		CanvasResponseCache.Lookup missBefore = nodeA.getShared(URL);
+
+		// nodeB refreshes while nodeA's fetch is still running; nodeA's response then arrives.
+		nodeB.invalidate("secret");
+		nodeA.put(URL, stale, missBefore);
+		assertNull(nodeA.getLocal(URL));
+		assertNull(nodeB.getShared(URL).response());
+
+		// A fetch that looked up after the invalidation is stored as usual.
+		ResponseEntity<String> fresh = ResponseEntity.ok("[{\"id\":5,\"title\":\"New title\"}]");
+		nodeA.put(URL, fresh, nodeA.getShared(URL));
+		assertEquals(fresh.getBody(), nodeA.getLocal(URL).getBody());
+		assertEquals(fresh.getBody(), nodeB.getShared(URL).response().getBody());
+	}
+
+	@Test
+	void addingANodeMovesOnlyItsShareOfTenants() {
+		ConsistentHashRing<String> three = new ConsistentHashRing<>(List.of("a", "b", "c"), node -> node, 160);
+		ConsistentHashRing<String> four = new ConsistentHashRing<>(List.of("a", "b", "c", "d"), node -> node, 160);
+
+		List<String> tenants = new ArrayList<>();
+		for (int i = 0; i < 10_000; i++) {
+			tenants.add("tenant-" + i);
+		}
+		int moved = 0;
+		for (String tenant : tenants) {
+			String before = three.route(tenant);
+			String after = four.route(tenant);
+			if (!before.equals(after)) {
+				moved++;
+				assertEquals("d", after);
+			}
+		}
+		// Roughly a quarter of the tenants move, all of them to the new node.
+		assertTrue(moved > 1_500 && moved < 3_500, moved + " tenants moved");
+	}
+}
@@ -0,0 +1,106 @@
+package com.example.CalanderCanvas;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A Canvas stand-in on a local port. Each path answers through a Route, which sees how many times the path
+ * was called so far and may delay its reply; paths without a route answer 404.
+ */
+final class CanvasStub implements AutoCloseable {
+
+	/**
+	 * What a path answers: a JSON body, an optional Link header, after an optional delay.
+	 */
+	record Reply(long delayMillis, String body, String link) {
+
+		static Reply json(String body) {
+			return new Reply(0, body, null);
+		}
+
+		Reply after(long millis) {
+			return new Reply(millis, body, link);
+		}
+
+		Reply linking(String link) {
+			return new Reply(delayMillis, body, link);
+		}
+	}
+
+	interface Route {
+		Reply reply(int call, URI uri);
+	}
+
+	private final HttpServer server;
+	private final ExecutorService threads = Executors.newCachedThreadPool();
+	private final Map<String, Route> routes = new ConcurrentHashMap<>();
+	private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+
+	CanvasStub() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", this::handle);
+		server.setExecutor(threads);
+		server.start();
+	}
+
+	CanvasStub route(String path, Route route) {
+		routes.put(path, route);
+		return this;
+	}
+
+	/**
+	 * @return The stub's base URL, e.g. "http://127.0.0.1:51234".
+	 */
+	String base() {
+		return "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+
+	int calls(String path) {
+		AtomicInteger count = calls.get(path);
+		return count != null ? count.get() : 0;
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		String path = exchange.getRequestURI().getPath();
+		int call = calls.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+		Route route = routes.get(path);
+		try (exchange) {
+			if (route == null) {
+				exchange.sendResponseHeaders(404, -1);
+				return;
+			}
+			Reply reply = route.reply(call, exchange.getRequestURI());
+			if (reply.delayMillis() > 0) {
+				Thread.sleep(reply.delayMillis());
+			}
+			byte[] body = reply.body().getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "application/json");
+			if (reply.link() != null) {
+				exchange.getResponseHeaders().set("Link", reply.link());
+			}
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		threads.shutdownNow();
+	}
+}
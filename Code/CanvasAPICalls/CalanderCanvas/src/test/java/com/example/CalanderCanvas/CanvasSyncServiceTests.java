@@ -0,0 +1,84 @@
+package com.example.CalanderCanvas;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.server.ResponseStatusException;
+
+class CanvasSyncServiceTests {
+
+	private final CanvasAPIService canvas = mock(CanvasAPIService.class);
+	private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+	private final CanvasSyncService sync;
+
+	CanvasSyncServiceTests() {
+		executor.setCorePoolSize(2);
+		executor.initialize();
+		CanvasDataset dataset = new CanvasDataset(new StaticListableBeanFactory().getBeanProvider(DatasetListener.class), 100, false);
+		sync = new CanvasSyncService(canvas, dataset, Duration.ofMinutes(1), executor);
+	}
+
+	@AfterEach
+	void stop() {
+		RequestDeadline.clear();
+		executor.shutdown();
+	}
+
+	private static CanvasAPIService.ItemCrawl crawl(Set<String> incompleteScopes) {
+		return new CanvasAPIService.ItemCrawl(
+				List.of(TestItems.assignment("assignment:1", "1", "2026-10-20T12:00:00Z", null)), incompleteScopes);
+	}
+
+	@Test
+	void ownersDeadlineDoesNotCutTheCrawlShortForOthers() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		when(canvas.crawlItems()).thenAnswer(invocation -> {
+			release.await();
+			return crawl(Set.of());
+		});
+
+		// The request that starts the crawl gives up at its deadline...
+		RequestDeadline deadline = RequestDeadline.start(50);
+		assertThrows(ResponseStatusException.class, sync::sync);
+		assertTrue(deadline.isIncomplete());
+		RequestDeadline.clear();
+
+		// ...while a caller without one joins the same crawl and gets its whole result.
+		CompletableFuture<DatasetChange> joiner = new CompletableFuture<>();
+		Thread waiting = new Thread(() -> joiner.complete(sync.sync()));
+		waiting.start();
+		// Release the crawl only once the caller waits on it, or it would start a crawl of its own.
+		while (waiting.getState() != Thread.State.WAITING && waiting.getState() != Thread.State.TIMED_WAITING) {
+			Thread.sleep(1);
+		}
+		release.countDown();
+		assertEquals(1, joiner.get(2, TimeUnit.SECONDS).added().size());
+		verify(canvas, times(1)).crawlItems();
+	}
+
+	@Test
+	void onlyACompleteCrawlCountsAsFresh() {
+		when(canvas.crawlItems()).thenReturn(crawl(Set.of("course:1")), crawl(Set.of()));
+
+		sync.syncIfStale();
+		sync.syncIfStale();
+		sync.syncIfStale();
+		verify(canvas, times(2)).crawlItems();
+	}
+}
@@ -0,0 +1,50 @@
+package com.example.CalanderCanvas;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class ColumnarItemStoreTests {
+
+	@Test
+	void roundTripsUpdatesAndCompacts() {
+		ColumnarItemStore store = new ColumnarItemStore(true);
+		for (int i = 0; i < 200; i++) {
+			store.add(TestItems.generated(i), 1);
+		}
+		CanvasItem odd = new CanvasItem("assignment:007", CanvasItem.Type.ASSIGNMENT, "1", "C", "Odd id", null, null, null, null);
+		store.add(odd, 1);
+
+		assertEquals(TestItems.generated(42), store.get(store.find(TestItems.generated(42).id())));
+		assertEquals(odd, store.get(store.find("assignment:007")));
+		long oddKey = ColumnarItemStore.keyOf("assignment:007");
+		long key199 = ColumnarItemStore.keyOf(TestItems.generated(199).id());
+		assertEquals(oddKey, store.key(store.find("assignment:007")));
+		assertEquals(key199, store.key(store.find(TestItems.generated(199).id())));
+		assertTrue(store.matches(store.find(TestItems.generated(7).id()), TestItems.generated(7)));
+
+		CanvasItem changed = new CanvasItem(TestItems.generated(7).id(), TestItems.generated(7).type(), null, null, "Moved", null, null, null, null);
+		assertFalse(store.matches(store.find(changed.id()), changed));
+		store.set(store.find(changed.id()), changed, 2);
+		assertEquals(changed, store.get(store.find(changed.id())));
+		assertEquals(2, store.version(store.find(changed.id())));
+
+		for (int i = 0; i < 150; i++) {
+			store.remove(store.find(TestItems.generated(i + 10).id()));
+		}
+		store.compactIfNeeded();
+		assertEquals(51, store.size());
+		assertEquals(51, store.rowCount());
+		assertEquals(-1, store.find(TestItems.generated(100).id()));
+		assertEquals(TestItems.generated(199), store.get(store.find(TestItems.generated(199).id())));
+		assertEquals(TestItems.generated(0), store.get(0));
+		assertEquals(odd, store.get(store.find("assignment:007")));
+
+		// Keys, unlike rows, survive compaction.
+		assertEquals(odd, store.get(store.find(oddKey)));
+		assertEquals(TestItems.generated(199), store.get(store.find(key199)));
+		assertEquals(-1, store.find(ColumnarItemStore.keyOf(TestItems.generated(100).id())));
+	}
+}
@@ -0,0 +1,117 @@
+package com.example.CalanderCanvas;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+/**
+ * Retained heap per item of the columnar store against the representations it replaced (CanvasItem objects,
+ * formatted strings, the client's pipe-joined strings), and of a whole tenant: the dataset with the search,
+ * deadline and calendar indexes, which is what tenants per GB has to count. Measured from used heap after
+ * System.gc(); GC-based numbers vary between runs and JVMs. Run with -Pbenchmark; it only reports numbers.
+ */
+@Tag("benchmark")
+class ColumnarMemoryBenchmarkTests {
+
+	@Test
+	void measuresRetainedHeapPerItem() {
+		// Each representation is built from freshly created items, as if parsed from Canvas, so none shares strings.
+		int count = 20_000;
+
+		// What the dataset held before: CanvasItem objects by id.
+		long objects = retainedBytes(() -> {
+			Map<String, CanvasItem> map = new LinkedHashMap<>();
+			for (int i = 0; i < count; i++) {
+				CanvasItem item = TestItems.generated(i);
+				map.put(item.id(), item);
+			}
+			return map;
+		});
+		// What the string endpoints build: one formatted String per item.
+		long records = retainedBytes(() -> {
+			List<String> list = new ArrayList<>();
+			for (int i = 0; i < count; i++) {
+				CanvasItem item = TestItems.generated(i);
+				list.add("Course: " + item.courseName() + " | Assignment: " + item.name() + " | Due Date: " + item.dueAt());
+			}
+			return list;
+		});
+		// What the calendar client builds: pipe-joined strings grouped by day.
+		long pipes = retainedBytes(() -> {
+			Map<LocalDate, List<String>> byDay = new HashMap<>();
+			for (int i = 0; i < count; i++) {
+				CanvasItem item = TestItems.generated(i);
+				byDay.computeIfAbsent(LocalDate.ofInstant(item.dueAt(), ZoneOffset.UTC), day -> new ArrayList<>())
+						.add(item.name() + "|" + item.courseName() + "|" + item.dueAt() + "|" + item.pointsPossible() + "|" + item.description());
+			}
+			return byDay;
+		});
+		long columnar = retainedBytes(() -> store(count));
+		ColumnarItemStore store = store(count);
+		long estimated = store.estimatedBytes();
+
+		System.out.printf("Bytes per item for %d items: CanvasItem map %d, List<String> %d, Map<LocalDate, List<String>> %d, "
+				+ "columnar %d (estimated %d); tenants per GB: %d vs %d columnar%n",
+				count, objects / count, records / count, pipes / count, columnar / count, estimated / count,
+				(1L << 30) / Math.max(1, objects), (1L << 30) / Math.max(1, estimated));
+
+		// The whole tenant: the store plus every index that listens to it.
+		long tenant = retainedBytes(() -> tenant(count));
+		CanvasDataset.Stats stats = tenant(count).getStats();
+		System.out.printf("Whole tenant for %d items: %d bytes per item measured, %d estimated; tenants per GB: "
+				+ "%d measured, %d estimated%n%s%n",
+				count, tenant / count, stats.bytesPerItem(), (1L << 30) / Math.max(1, tenant), stats.tenantsPerGigabyte(), stats);
+	}
+
+	private static CanvasDataset tenant(int count) {
+		StaticListableBeanFactory listeners = new StaticListableBeanFactory();
+		CanvasDataset dataset = new CanvasDataset(listeners.getBeanProvider(DatasetListener.class), 100, false);
+		listeners.addBean("searchIndex", new SearchIndex(dataset));
+		listeners.addBean("deadlineIndex", new DeadlineIndex(dataset, "UTC"));
+		listeners.addBean("calendarIndex", new CalendarIndex(dataset, "UTC"));
+		List<CanvasItem> items = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			items.add(TestItems.generated(i));
+		}
+		dataset.apply(items, Set.of());
+		return dataset;
+	}
+
+	private static ColumnarItemStore store(int count) {
+		ColumnarItemStore store = new ColumnarItemStore(false);
+		for (int i = 0; i < count; i++) {
+			store.add(TestItems.generated(i), 1);
+		}
+		return store;
+	}
+
+	/**
+	 * Measures roughly how much heap the value built by the supplier keeps alive: used heap while it is
+	 * reachable minus used heap once it is not.
+	 */
+	private static long retainedBytes(Supplier<Object> build) {
+		Object[] holder = {build.get()};
+		long alive = usedHeap();
+		holder[0] = null;
+		long released = usedHeap();
+		return Math.max(0, alive - released);
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
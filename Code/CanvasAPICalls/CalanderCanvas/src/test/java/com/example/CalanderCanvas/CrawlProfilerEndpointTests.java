@@ -0,0 +1,63 @@
+package com.example.CalanderCanvas;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class CrawlProfilerEndpointTests {
+
+	private final CanvasAPIService canvas = mock(CanvasAPIService.class);
+
+	private final CrawlProfilerEndpoint endpoint = new CrawlProfilerEndpoint(canvas, new ObjectMapper().findAndRegisterModules(),
+			Duration.ofSeconds(30), DataSize.ofMegabytes(5), false);
+
+	private static void fetch(String trace, long chars) {
+		CanvasEvents.FetchEvent event = new CanvasEvents.FetchEvent();
+		event.begin();
+		event.path = "/api/v1/courses";
+		event.status = 200;
+		event.chars = chars;
+		event.trace = trace;
+		event.commit();
+	}
+
+	@Test
+	void summarizesOnlyTheEventsOfItsOwnCrawl() {
+		when(canvas.crawlItems()).thenAnswer(invocation -> {
+			String trace = CanvasEvents.currentTrace();
+			// The crawl's own fetch, even when recorded on another thread...
+			CompletableFuture.runAsync(() -> fetch(trace, 100)).join();
+			// ...but not those of a request served meanwhile, or of background work.
+			CompletableFuture.runAsync(() -> fetch("request-0", 5000)).join();
+			fetch(null, 7);
+			return new CanvasAPIService.ItemCrawl(List.of(TestItems.generated(1)), Set.of());
+		});
+
+		CrawlProfilerEndpoint.CrawlProfile profile = endpoint.profile(false).getBody();
+
+		assertEquals(1, profile.phases().get("fetch").count());
+		assertEquals(100, profile.phases().get("fetch").chars());
+		assertEquals(1, profile.items());
+		assertNull(CanvasEvents.currentTrace());
+	}
+
+	@Test
+	void refusesColdProfilesUnlessAllowed() {
+		assertEquals(403, endpoint.profile(true).getStatus());
+		verify(canvas, never()).invalidateCache();
+		verify(canvas, never()).crawlItems();
+	}
+}
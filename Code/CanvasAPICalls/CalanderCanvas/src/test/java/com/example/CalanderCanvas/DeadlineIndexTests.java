@@ -0,0 +1,43 @@
+package com.example.CalanderCanvas;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+class DeadlineIndexTests {
+
+	private final StaticListableBeanFactory listeners = new StaticListableBeanFactory();
+	private final CanvasDataset dataset = new CanvasDataset(listeners.getBeanProvider(DatasetListener.class), 100, false);
+	private final DeadlineIndex index = new DeadlineIndex(dataset, "UTC");
+
+	DeadlineIndexTests() {
+		listeners.addBean("index", index);
+	}
+
+	@Test
+	void ordersDeadlinesAndKeepsDayAndWeekTotals() {
+		CanvasItem a = TestItems.assignment("assignment:1", "1", "2026-10-13T23:59:00Z", null);
+		CanvasItem b = TestItems.assignment("assignment:2", "1", "2026-10-13T12:00:00Z", null);
+		CanvasItem c = TestItems.assignment("assignment:3", "1", "2026-10-20T12:00:00Z", null);
+		CanvasItem event = TestItems.event("event:5", "Lecture", "2026-10-14T10:00:00Z");
+		dataset.apply(List.of(a, b, c, event), Set.of());
+
+		// Events are not deadlines.
+		assertEquals(List.of(b, a, c), index.next(Instant.parse("2026-10-13T00:00:00Z"), 10));
+		assertEquals(List.of(new DeadlineIndex.Workload(LocalDate.of(2026, 10, 13), LocalDate.of(2026, 10, 13), 2, 20.0)),
+				index.daily(LocalDate.of(2026, 10, 12), LocalDate.of(2026, 10, 18)));
+
+		// Moving c into the week of a and b moves its points with it.
+		CanvasItem moved = TestItems.assignment("assignment:3", "1", "2026-10-16T12:00:00Z", null);
+		dataset.apply(List.of(a, moved, event), Set.of());
+		assertEquals(List.of(new DeadlineIndex.Workload(LocalDate.of(2026, 10, 12), LocalDate.of(2026, 10, 18), 2, 20.0)),
+				index.weekly(LocalDate.of(2026, 10, 14), LocalDate.of(2026, 10, 25)));
+		assertEquals(List.of(a, moved), index.next(Instant.parse("2026-10-13T00:00:00Z"), 10));
+	}
+}
@@ -0,0 +1,92 @@
+package com.example.CalanderCanvas;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+/**
+ * Payload size and encode/decode time of the bulk responses: the string map of /course-grades against the
+ * typed items of /items as JSON, Smile (configured as in AppConfig) and CBOR, each with and without gzip.
+ * Run with -Pbenchmark; it only reports numbers.
+ */
+@Tag("benchmark")
+class EncodingBenchmarkTests {
+
+	private static final TypeReference<List<CanvasItem>> ITEMS = new TypeReference<>() {
+	};
+
+	private final ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+	private final ObjectMapper smile = new Jackson2ObjectMapperBuilder()
+			.factory(SmileFactory.builder().enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES).build())
+			.build();
+	private final ObjectMapper cbor = Jackson2ObjectMapperBuilder.cbor().build();
+
+	@Test
+	void comparesPayloadSizeAndCodecTime() throws IOException {
+		// About one term (8 courses with assignments, quizzes and events), then a large multi-term account.
+		for (int count : new int[]{500, 20_000}) {
+			List<CanvasItem> items = TestItems.term(count);
+			System.out.printf("%d items          raw bytes   gzip bytes   encode us   decode us%n", count);
+			report("strings JSON", json, courseGrades(items), new TypeReference<Map<String, List<String>>>() {
+			});
+			report("items JSON", json, items, ITEMS);
+			report("items Smile", smile, items, ITEMS);
+			report("items CBOR", cbor, items, ITEMS);
+		}
+	}
+
+	private <T> void report(String name, ObjectMapper mapper, T value, TypeReference<T> type) throws IOException {
+		byte[] encoded = mapper.writeValueAsBytes(value);
+		long encode = Long.MAX_VALUE;
+		long decode = Long.MAX_VALUE;
+		// Best of many runs, so the numbers measure the codec rather than JIT warm-up.
+		for (int run = 0; run < 30; run++) {
+			long start = System.nanoTime();
+			mapper.writeValueAsBytes(value);
+			encode = Math.min(encode, System.nanoTime() - start);
+			start = System.nanoTime();
+			mapper.readValue(encoded, type);
+			decode = Math.min(decode, System.nanoTime() - start);
+		}
+		System.out.printf("  %-14s %11d %12d %11d %11d%n", name, encoded.length, gzip(encoded).length, encode / 1000, decode / 1000);
+	}
+
+	/**
+	 * The /course-grades form of the items: formatted strings grouped by course name.
+	 */
+	private static Map<String, List<String>> courseGrades(List<CanvasItem> items) {
+		Map<String, List<String>> grades = new LinkedHashMap<>();
+		for (CanvasItem item : items) {
+			if (item.type() == CanvasItem.Type.EVENT) {
+				continue;
+			}
+			grades.computeIfAbsent(item.courseName(), course -> new ArrayList<>()).add(
+					(item.type() == CanvasItem.Type.QUIZ ? "Quiz: " : "Assignment: ") + item.name()
+							+ ", Due Date: " + item.dueAt()
+							+ ", Points Earned: " + (item.pointsEarned() != null ? item.pointsEarned() : "Not Available")
+							+ ", Total Points: " + item.pointsPossible());
+		}
+		return grades;
+	}
+
+	private static byte[] gzip(byte[] data) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(data);
+		}
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,146 @@
+package com.example.CalanderCanvas;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Load test of the two execution modes (spring.threads.virtual.enabled false and true) against a stub Canvas
+ * that answers every call after 50 ms. Each simulated user crawls its own Canvas account (its own token, so
+ * nothing is shared through the cache or the single-flight map) on a request thread: one of Tomcat's 200
+ * platform threads (server.tomcat.threads.max) or a virtual thread of its own. The Canvas calls go through the
+ * canvasFetchExecutor AppConfig builds for the mode. Alongside the crawls, cheap requests that never call
+ * Canvas measure how long a request waits for a request thread. Reports throughput, latency percentiles and
+ * peak platform threads (the stub's own threads included). Crawl throughput is bounded by canvas.fetch.threads
+ * and the CPU in both modes; what differs is the threads it takes and whether other requests queue behind the
+ * crawls. Run with -Pbenchmark; it only reports numbers.
+ */
+@Tag("benchmark")
+class ExecutionModeBenchmarkTests {
+
+	private static final int TOMCAT_THREADS = 200;
+	private static final int FETCH_LIMIT = 64;
+	private static final long CANVAS_MILLIS = 50;
+	private static final int COURSES = 2;
+	private static final int ASSIGNMENTS = 4;
+
+	@Test
+	void comparesPlatformAndVirtualRequestThreads() throws Exception {
+		try (CanvasStub canvas = stub()) {
+			// Warm-up: the first crawls pay for class loading and JIT compilation.
+			run(canvas, false, 50, false);
+			run(canvas, true, 50, false);
+			System.out.println("mode      users   crawls/s   p50 ms   p99 ms   cheap p50 ms   cheap p99 ms   peak platform threads");
+			for (int users : new int[]{50, 200, 800}) {
+				run(canvas, false, users, true);
+				run(canvas, true, users, true);
+			}
+		}
+	}
+
+	private void run(CanvasStub canvas, boolean virtual, int users, boolean report) throws Exception {
+		AsyncTaskExecutor fetchExecutor = new AppConfig().canvasFetchExecutor(
+				new MockEnvironment().withProperty("spring.threads.virtual.enabled", String.valueOf(virtual)),
+				new ThreadPoolTaskExecutorBuilder(), new SimpleAsyncTaskExecutorBuilder(), FETCH_LIMIT);
+		if (fetchExecutor instanceof ThreadPoolTaskExecutor pool) {
+			pool.initialize();
+		}
+		ExecutorService requests = virtual ? Executors.newVirtualThreadPerTaskExecutor() : Executors.newFixedThreadPool(TOMCAT_THREADS);
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		threads.resetPeakThreadCount();
+		try {
+			CanvasResponseCache cache = new CanvasResponseCache(new InMemorySharedCache(), new ObjectMapper(), false, Duration.ofMinutes(5), 100);
+			HedgedFetcher fetcher = new HedgedFetcher(new RestTemplate(), fetchExecutor, cache, 256, 20, Duration.ofMillis(50), 0, 10);
+
+			long start = System.nanoTime();
+			List<Future<Long>> crawls = new ArrayList<>();
+			List<Future<Long>> cheap = new ArrayList<>();
+			for (int u = 0; u < users; u++) {
+				CanvasAPIService service = new CanvasAPIService(fetcher, new ObjectMapper(), cache, "token-" + virtual + "-" + users + "-" + u, canvas.base());
+				long submitted = System.nanoTime();
+				crawls.add(requests.submit(() -> {
+					service.crawlItems();
+					return System.nanoTime() - submitted;
+				}));
+				if (u % 10 == 0) {
+					long cheapSubmitted = System.nanoTime();
+					cheap.add(requests.submit(() -> System.nanoTime() - cheapSubmitted));
+				}
+			}
+			long[] crawlMillis = millis(crawls);
+			long elapsed = System.nanoTime() - start;
+			long[] cheapMillis = millis(cheap);
+
+			if (report) {
+				System.out.printf("%-8s %6d %10.1f %8d %8d %14d %14d %23d%n", virtual ? "virtual" : "platform", users,
+						users * 1e9 / elapsed, percentile(crawlMillis, 50), percentile(crawlMillis, 99),
+						percentile(cheapMillis, 50), percentile(cheapMillis, 99), threads.getPeakThreadCount());
+			}
+		} finally {
+			requests.shutdown();
+			if (fetchExecutor instanceof ThreadPoolTaskExecutor pool) {
+				pool.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * A term of COURSES courses with ASSIGNMENTS graded assignments each and no quizzes or events: 15 Canvas
+	 * calls per crawl, at most three of them one after another.
+	 */
+	private static CanvasStub stub() throws IOException {
+		CanvasStub canvas = new CanvasStub();
+		StringBuilder courses = new StringBuilder("[");
+		for (int c = 1; c <= COURSES; c++) {
+			courses.append(c > 1 ? "," : "").append("{\"id\":").append(c).append(",\"name\":\"Course ").append(c).append("\"}");
+			StringBuilder assignments = new StringBuilder("[");
+			for (int a = 1; a <= ASSIGNMENTS; a++) {
+				int id = c * 100 + a;
+				assignments.append(a > 1 ? "," : "").append("{\"id\":").append(id).append(",\"name\":\"HW ").append(id)
+						.append("\",\"due_at\":\"2026-10-2").append(a).append("T12:00:00Z\",\"points_possible\":10}");
+				canvas.route("/api/v1/courses/" + c + "/assignments/" + id + "/submissions/self", delayed("{\"score\":8}"));
+			}
+			canvas.route("/api/v1/courses/" + c + "/assignments", delayed(assignments.append("]").toString()));
+			canvas.route("/api/v1/courses/" + c + "/quizzes", delayed("[]"));
+		}
+		canvas.route("/api/v1/courses", delayed(courses.append("]").toString()));
+		canvas.route("/api/v1/users/self", delayed("{\"id\":1}"));
+		canvas.route("/api/v1/calendar_events", delayed("[]"));
+		return canvas;
+	}
+
+	private static CanvasStub.Route delayed(String body) {
+		return (call, uri) -> CanvasStub.Reply.json(body).after(CANVAS_MILLIS);
+	}
+
+	private static long[] millis(List<Future<Long>> futures) throws Exception {
+		long[] millis = new long[futures.size()];
+		for (int i = 0; i < millis.length; i++) {
+			millis[i] = futures.get(i).get() / 1_000_000L;
+		}
+		Arrays.sort(millis);
+		return millis;
+	}
+
+	private static long percentile(long[] sorted, int percent) {
+		return sorted[Math.min(sorted.length - 1, sorted.length * percent / 100)];
+	}
+}
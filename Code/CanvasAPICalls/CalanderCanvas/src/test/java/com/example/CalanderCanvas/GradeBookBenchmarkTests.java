@@ -0,0 +1,51 @@
+package com.example.CalanderCanvas;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Time to apply one what-if score and recompute the grade of a course with 2000 assignments, in groups with
+ * and without drop rules.
+ * Run with -Pbenchmark; it only reports numbers.
+ */
+@Tag("benchmark")
+class GradeBookBenchmarkTests {
+
+	@Test
+	void measuresWhatIfRecompute() {
+		Random random = new Random(7);
+		List<GradeBook.GroupDefinition> groups = new ArrayList<>();
+		for (int g = 0; g < 10; g++) {
+			List<GradeBook.AssignmentScore> assignments = new ArrayList<>();
+			for (int a = 0; a < 200; a++) {
+				double possible = 5 + random.nextInt(20);
+				assignments.add(TestItems.score(g * 1000 + a, possible, random.nextInt(4) == 0 ? null : (double) random.nextInt((int) possible + 1)));
+			}
+			groups.add(new GradeBook.GroupDefinition(String.valueOf(g), "G" + g, 10, g % 2 == 0 ? 2 : 0, g == 0 ? 1 : 0, Set.of(), assignments));
+		}
+		GradeBook book = new GradeBook("1", "Big course", true, groups);
+
+		// Best of many changes, in groups without (odd) and with (even) drop rules.
+		long bestPlain = Long.MAX_VALUE;
+		long bestDropping = Long.MAX_VALUE;
+		for (int i = 0; i < 2_000; i++) {
+			int g = random.nextInt(10);
+			long start = System.nanoTime();
+			book.setWhatIf("assignment:" + (g * 1000 + random.nextInt(200)), (double) random.nextInt(25));
+			book.getGrade();
+			long took = System.nanoTime() - start;
+			if (g % 2 == 1) {
+				bestPlain = Math.min(bestPlain, took);
+			} else {
+				bestDropping = Math.min(bestDropping, took);
+			}
+		}
+		System.out.println("What-if recompute, 2000 assignments: best " + bestPlain / 1000 + " us (plain group), "
+				+ bestDropping / 1000 + " us (group with drop rules)");
+	}
+}
@@ -0,0 +1,92 @@
+package com.example.CalanderCanvas;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class GradeBookTests {
+
+	private static GradeBook course(boolean weighted) {
+		return new GradeBook("1", "Math 101", weighted, List.of(
+				// Dropping the lowest percentage (assignment 2) would keep 110/200; dropping 1 keeps 100/101.
+				new GradeBook.GroupDefinition("10", "Homework", 40, 1, 0, Set.of(), List.of(
+						TestItems.score(1, 100, 10.0), TestItems.score(2, 1, 0.0), TestItems.score(3, 100, 100.0), TestItems.score(4, 50, null))),
+				new GradeBook.GroupDefinition("11", "Exams", 60, 0, 0, Set.of(), List.of(
+						TestItems.score(5, 100, 80.0), TestItems.score(6, 100, null)))));
+	}
+
+	@Test
+	void appliesWeightsDropRulesAndWhatIfScores() {
+		GradeBook book = course(true);
+		GradeBook.Grade grade = book.getGrade();
+		assertEquals(87.6, grade.current());
+		assertEquals(50.49, grade.finalGrade());
+		assertEquals(List.of("assignment:1"), grade.groups().get(0).dropped());
+		assertEquals(99.01, grade.groups().get(0).current());
+
+		assertTrue(book.setWhatIf("assignment:6", 100.0));
+		assertEquals(93.6, book.getGrade().current());
+		assertEquals(80.49, book.getGrade().finalGrade());
+		assertTrue(book.setWhatIf("assignment:4", 50.0));
+		assertEquals(Map.of("assignment:6", 100.0, "assignment:4", 50.0), book.getGrade().whatIf());
+		assertFalse(book.setWhatIf("assignment:99", 1.0));
+
+		book.clearWhatIf();
+		assertEquals(87.6, book.getGrade().current());
+		assertEquals(Map.of(), book.getGrade().whatIf());
+
+		assertEquals(89.55, course(false).getGrade().current());
+	}
+
+	@Test
+	void copiesStartFromRealScores() {
+		GradeBook book = course(true);
+		book.setWhatIf("assignment:6", 100.0);
+		GradeBook copy = book.copy();
+		assertEquals(87.6, copy.getGrade().current());
+		copy.setWhatIf("assignment:5", 0.0);
+		assertEquals(93.6, book.getGrade().current());
+	}
+
+	@Test
+	void incrementalUpdatesMatchAGradeComputedFromScratch() {
+		Random random = new Random(7);
+		List<GradeBook.GroupDefinition> groups = new ArrayList<>();
+		List<List<GradeBook.AssignmentScore>> scores = new ArrayList<>();
+		for (int g = 0; g < 6; g++) {
+			List<GradeBook.AssignmentScore> assignments = new ArrayList<>();
+			for (int a = 0; a < 30; a++) {
+				double possible = 5 + random.nextInt(20);
+				assignments.add(TestItems.score(g * 1000 + a, possible, random.nextInt(4) == 0 ? null : (double) random.nextInt((int) possible + 1)));
+			}
+			scores.add(assignments);
+			groups.add(new GradeBook.GroupDefinition(String.valueOf(g), "G" + g, 10, g % 2 == 0 ? 2 : 0, g == 0 ? 1 : 0, Set.of(), assignments));
+		}
+		GradeBook book = new GradeBook("1", "Course", true, groups);
+		for (int i = 0; i < 300; i++) {
+			int g = random.nextInt(6);
+			int a = random.nextInt(30);
+			double value = random.nextInt(25);
+			book.setWhatIf("assignment:" + (g * 1000 + a), value);
+			scores.get(g).set(a, TestItems.score(g * 1000 + a, scores.get(g).get(a).pointsPossible(), value));
+		}
+
+		List<GradeBook.GroupDefinition> rebuilt = new ArrayList<>();
+		for (int g = 0; g < 6; g++) {
+			GradeBook.GroupDefinition group = groups.get(g);
+			rebuilt.add(new GradeBook.GroupDefinition(group.id(), group.name(), group.weight(), group.dropLowest(),
+					group.dropHighest(), group.neverDrop(), scores.get(g)));
+		}
+		GradeBook.Grade fresh = new GradeBook("1", "Course", true, rebuilt).getGrade();
+		assertEquals(fresh.current(), book.getGrade().current());
+		assertEquals(fresh.finalGrade(), book.getGrade().finalGrade());
+	}
+}
@@ -0,0 +1,181 @@
+package com.example.CalanderCanvas;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.server.ResponseStatusException;
+
+class GradeServiceTests {
+
+	private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+	// Released to let a blocked grade book fetch finish.
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	// Set once a fetch is waiting on release.
+	private final CountDownLatch blocked = new CountDownLatch(1);
+
+	private final AtomicInteger fetches = new AtomicInteger();
+
+	// Fetches after the first wait on release; the second fetch drops assignment 2.
+	private final CanvasAPIService canvas = new CanvasAPIService(null, null, null, "token", "http://canvas.test") {
+		@Override
+		public GradeBookFetch getGradeBooks() {
+			int fetch = fetches.incrementAndGet();
+			if (fetch > 1) {
+				blocked.countDown();
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			List<GradeBook.AssignmentScore> assignments = fetch == 1
+					? List.of(TestItems.score(1, 10, 5.0), TestItems.score(2, 10, null))
+					: List.of(TestItems.score(1, 10, 5.0));
+			return new GradeBookFetch(List.of("1"), List.of(book("1", assignments)), Set.of());
+		}
+
+		@Override
+		public void invalidateCache() {
+		}
+	};
+
+	GradeServiceTests() {
+		executor.setCorePoolSize(2);
+		executor.initialize();
+	}
+
+	@AfterEach
+	void stop() {
+		RequestDeadline.clear();
+		executor.shutdown();
+	}
+
+	private static GradeBook book(String courseId, List<GradeBook.AssignmentScore> assignments) {
+		return new GradeBook(courseId, "Course " + courseId, false,
+				List.of(new GradeBook.GroupDefinition("10", "Homework", 100, 0, 0, Set.of(), assignments)));
+	}
+
+	@Test
+	void keepsWhatIfScoresPerSessionAndCarriesThemOver() {
+		GradeService service = new GradeService(canvas, Duration.ofMinutes(5), executor);
+		GradeService.WhatIf alice = new GradeService.WhatIf();
+		GradeService.WhatIf bob = new GradeService.WhatIf();
+
+		assertEquals(75.0, service.setWhatIf("1", Map.of("assignment:2", 10.0), alice).current());
+		assertEquals(50.0, service.getGrade("1", bob).current());
+		assertEquals(75.0, service.getGrades(false, alice).get(0).current());
+		assertEquals(Map.of(), service.getGrades(false, bob).get(0).whatIf());
+
+		// A refresh keeps the scores of assignments that still exist.
+		assertEquals(90.0, service.setWhatIf("1", Map.of("assignment:1", 8.0), alice).current());
+		release.countDown();
+		GradeBook.Grade refreshed = service.getGrades(true, alice).get(0);
+		assertEquals(Map.of("assignment:1", 8.0), refreshed.whatIf());
+		assertEquals(80.0, refreshed.current());
+		assertEquals(50.0, service.clearWhatIf("1", alice).current());
+	}
+
+	@Test
+	void setsWhatIfScoresWhileCanvasIsBeingReadAgain() throws Exception {
+		GradeService service = new GradeService(canvas, Duration.ofMinutes(5), executor);
+		GradeService.WhatIf session = new GradeService.WhatIf();
+		service.getGrade("1", session);
+
+		CompletableFuture<List<GradeBook.Grade>> refresh = CompletableFuture.supplyAsync(() -> service.getGrades(true, session));
+		blocked.await(5, TimeUnit.SECONDS);
+		// The fetch is in progress; this uses the grade books already fetched instead of waiting for it.
+		assertEquals(100.0, CompletableFuture.supplyAsync(() -> service.setWhatIf("1", Map.of("assignment:2", 15.0), session))
+				.get(2, TimeUnit.SECONDS).current());
+		release.countDown();
+		assertEquals(Map.of(), refresh.get(5, TimeUnit.SECONDS).get(0).whatIf());
+	}
+
+	@Test
+	void rejectsEveryWhatIfScoreWhenOneAssignmentIsUnknown() {
+		GradeService service = new GradeService(canvas, Duration.ofMinutes(5), executor);
+		GradeService.WhatIf session = new GradeService.WhatIf();
+
+		Map<String, Double> scores = new LinkedHashMap<>();
+		scores.put("assignment:2", 10.0);
+		scores.put("assignment:99", 10.0);
+		ResponseStatusException rejected = assertThrows(ResponseStatusException.class,
+				() -> service.setWhatIf("1", scores, session));
+		assertEquals(HttpStatus.BAD_REQUEST, rejected.getStatusCode());
+		assertEquals(Map.of(), service.getGrade("1", session).whatIf());
+		assertEquals(50.0, service.getGrade("1", session).current());
+	}
+
+	@Test
+	void keepsThePreviousBookOfACourseThatFailedAndFetchesAgain() {
+		CanvasAPIService failing = mock(CanvasAPIService.class);
+		GradeBook math = book("1", List.of(TestItems.score(1, 10, 5.0)));
+		GradeBook art = book("2", List.of(TestItems.score(2, 10, 10.0)));
+		GradeBook mathGraded = book("1", List.of(TestItems.score(1, 10, 10.0)));
+		when(failing.getGradeBooks()).thenReturn(
+				new CanvasAPIService.GradeBookFetch(List.of("1", "2"), List.of(math, art), Set.of()),
+				new CanvasAPIService.GradeBookFetch(List.of("1", "2"), List.of(mathGraded), Set.of("2")));
+		GradeService service = new GradeService(failing, Duration.ofMinutes(5), executor);
+		GradeService.WhatIf session = new GradeService.WhatIf();
+
+		service.getGrades(false, session);
+		List<GradeBook.Grade> partial = service.getGrades(true, session);
+		assertEquals(List.of("1", "2"), partial.stream().map(GradeBook.Grade::courseId).toList());
+		assertEquals(100.0, partial.get(0).current());
+		assertEquals(100.0, partial.get(1).current());
+
+		// The partial snapshot is not fresh, so the next read goes back to Canvas.
+		service.getGrades(false, session);
+		verify(failing, times(3)).getGradeBooks();
+	}
+
+	@Test
+	void callersDeadlineDoesNotCutTheFetchShortForOthers() throws Exception {
+		GradeService service = new GradeService(canvas, Duration.ofMinutes(5), executor);
+		GradeService.WhatIf session = new GradeService.WhatIf();
+		assertEquals(25.0, service.getGrade("1", session).finalGrade());
+
+		// The request that starts the fetch gives up at its deadline...
+		RequestDeadline deadline = RequestDeadline.start(50);
+		assertThrows(ResponseStatusException.class, () -> service.getGrades(true, session));
+		assertTrue(deadline.isIncomplete());
+		RequestDeadline.clear();
+
+		// ...but the fetch goes on and publishes its grade books (without assignment 2) for everyone.
+		blocked.await(5, TimeUnit.SECONDS);
+		release.countDown();
+		assertTrue(waitFor(() -> Double.valueOf(50.0).equals(service.getGrade("1", session).finalGrade())));
+		assertEquals(2, fetches.get());
+	}
+
+	private static boolean waitFor(BooleanSupplier condition) throws InterruptedException {
+		for (int i = 0; i < 100; i++) {
+			if (condition.getAsBoolean()) {
+				return true;
+			}
+			Thread.sleep(50);
+		}
+		return false;
+	}
+}
@@ -0,0 +1,179 @@
+package com.example.CalanderCanvas;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class HedgedFetcherTests {
+
+	private final CanvasStub canvas = new CanvasStub();
+	private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+	HedgedFetcherTests() throws IOException {
+		executor.setCorePoolSize(4);
+		executor.initialize();
+		canvas.route("/fast", (call, uri) -> CanvasStub.Reply.json("[]"));
+	}
+
+	@AfterEach
+	void stop() {
+		RequestDeadline.clear();
+		canvas.close();
+		executor.shutdown();
+	}
+
+	private HedgedFetcher fetcher(double budgetRatio) {
+		CanvasResponseCache cache = new CanvasResponseCache(new InMemorySharedCache(), new ObjectMapper(), false, Duration.ofMinutes(5), 100);
+		return new HedgedFetcher(new RestTemplate(), executor, cache, 16, 5, Duration.ofMillis(20), budgetRatio, 10);
+	}
+
+	// Enough quick calls for the fetcher to start hedging, and for the slow first call (class loading,
+	// connection setup) to leave the 16-call window, so the hedge delay is the p95 of warm calls.
+	private static void warmUp(HedgedFetcher fetcher, String url) {
+		for (int i = 0; i < 40; i++) {
+			fetcher.get(url).join();
+		}
+	}
+
+	@Test
+	void slowCallIsHedgedAndTheFirstAnswerWins() throws Exception {
+		// The first call to /slow stalls; the hedge sent after the p95 answers at once.
+		canvas.route("/slow", (call, uri) -> CanvasStub.Reply.json("[" + call + "]").after(call == 1 ? 3000 : 0));
+		HedgedFetcher fetcher = fetcher(1.0);
+		warmUp(fetcher, canvas.base() + "/fast");
+
+		assertEquals("[2]", fetcher.get(canvas.base() + "/slow").get(5, TimeUnit.SECONDS));
+		assertEquals(2, canvas.calls("/slow"));
+	}
+
+	@Test
+	void noHedgeWithoutBudget() throws Exception {
+		canvas.route("/slow", (call, uri) -> CanvasStub.Reply.json("[" + call + "]").after(300));
+		HedgedFetcher fetcher = fetcher(0);
+		warmUp(fetcher, canvas.base() + "/fast");
+
+		assertEquals("[1]", fetcher.get(canvas.base() + "/slow").get(5, TimeUnit.SECONDS));
+		assertEquals(1, canvas.calls("/slow"));
+	}
+
+	@Test
+	void deadlineFailsTheCallAndMarksTheResultIncomplete() throws Exception {
+		canvas.route("/slow", (call, uri) -> CanvasStub.Reply.json("[]").after(2000));
+		HedgedFetcher fetcher = fetcher(0);
+		RequestDeadline deadline = RequestDeadline.start(100);
+
+		CompletableFuture<String> slow = fetcher.get(canvas.base() + "/slow");
+		ExecutionException failed = assertThrows(ExecutionException.class, () -> slow.get(3, TimeUnit.SECONDS));
+		assertInstanceOf(TimeoutException.class, failed.getCause());
+		assertTrue(deadline.isIncomplete());
+
+		// Once the deadline has passed nothing more is sent.
+		CompletableFuture<String> late = fetcher.get(canvas.base() + "/fast");
+		assertThrows(ExecutionException.class, () -> late.get(3, TimeUnit.SECONDS));
+		assertEquals(0, canvas.calls("/fast"));
+	}
+
+	@Test
+	void attemptsQueuedPastTheDeadlineAreNotSent() throws Exception {
+		canvas.route("/slow", (call, uri) -> CanvasStub.Reply.json("[]").after(500));
+		executor.setCorePoolSize(1);
+		executor.setMaxPoolSize(1);
+		HedgedFetcher fetcher = fetcher(0);
+
+		// Background work without a deadline holds the only thread while a request's call waits behind it.
+		CompletableFuture<String> background = fetcher.get(canvas.base() + "/slow");
+		RequestDeadline deadline = RequestDeadline.start(50);
+		CompletableFuture<String> queued = fetcher.get(canvas.base() + "/fast");
+		assertThrows(ExecutionException.class, () -> queued.get(3, TimeUnit.SECONDS));
+		assertTrue(deadline.isIncomplete());
+
+		background.get(5, TimeUnit.SECONDS);
+		executor.submit(() -> null).get(3, TimeUnit.SECONDS);
+		assertEquals(0, canvas.calls("/fast"));
+		assertFalse(background.isCompletedExceptionally());
+	}
+
+	@Test
+	void concurrentMissesShareOneFetch() throws Exception {
+		canvas.route("/slow", (call, uri) -> CanvasStub.Reply.json("[" + call + "]").after(200));
+		HedgedFetcher fetcher = fetcher(0);
+
+		List<CompletableFuture<String>> callers = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			callers.add(fetcher.get(canvas.base() + "/slow"));
+		}
+		for (CompletableFuture<String> caller : callers) {
+			assertEquals("[1]", caller.get(5, TimeUnit.SECONDS));
+		}
+		assertEquals(1, canvas.calls("/slow"));
+	}
+
+	@Test
+	void pagedFetchesFinishOnAThrottledExecutorWithFewerSlotsThanFetches() throws Exception {
+		// Submitting to this executor blocks while both slots are busy, so a fetch task that submitted another
+		// one (or ran a callback that does) would wait on itself. Hedging is off so every page is sent once.
+		SimpleAsyncTaskExecutor throttled = new SimpleAsyncTaskExecutor("throttled-");
+		throttled.setConcurrencyLimit(2);
+		CanvasResponseCache cache = new CanvasResponseCache(new InMemorySharedCache(), new ObjectMapper(), true, Duration.ofMinutes(5), 100);
+		HedgedFetcher fetcher = new HedgedFetcher(new RestTemplate(), throttled, cache, 16, 5, Duration.ofMillis(20), 0, 10);
+		canvas.route("/page", (call, uri) -> CanvasStub.Reply.json("[]").after(20));
+
+		// Eight listings of three pages, each page requested from the previous page's callback.
+		List<CompletableFuture<String>> listings = new ArrayList<>();
+		for (int listing = 0; listing < 8; listing++) {
+			String url = canvas.base() + "/page?access_token=t&listing=" + listing + "&page=";
+			listings.add(fetcher.get(url + 1)
+					.thenCompose(first -> fetcher.get(url + 2))
+					.thenCompose(second -> fetcher.get(url + 3)));
+		}
+		CompletableFuture.allOf(listings.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+		assertEquals(24, canvas.calls("/page"));
+	}
+
+	@Test
+	void sharedCacheFailuresNeverLeaveAFetchHanging() throws Exception {
+		// The shared tier fails the lookups of one URL and every store.
+		SharedCache failing = new InMemorySharedCache() {
+			@Override
+			public Lookup get(String tenant, String key) {
+				if (key.contains("lookup=fails")) {
+					throw new IllegalStateException("shared cache down");
+				}
+				return super.get(tenant, key);
+			}
+
+			@Override
+			public void put(String tenant, String key, byte[] value, long generation, Duration ttl) {
+				throw new IllegalStateException("shared cache down");
+			}
+		};
+		CanvasResponseCache cache = new CanvasResponseCache(failing, new ObjectMapper(), true, Duration.ofMinutes(5), 100);
+		HedgedFetcher fetcher = new HedgedFetcher(new RestTemplate(), executor, cache, 16, 5, Duration.ofMillis(20), 0, 10);
+
+		CompletableFuture<String> lookupFails = fetcher.get(canvas.base() + "/fast?access_token=t&lookup=fails");
+		ExecutionException failed = assertThrows(ExecutionException.class, () -> lookupFails.get(3, TimeUnit.SECONDS));
+		assertInstanceOf(IllegalStateException.class, failed.getCause());
+
+		// A response that cannot be stored is still returned.
+		assertEquals("[]", fetcher.get(canvas.base() + "/fast?access_token=t&store=fails").get(3, TimeUnit.SECONDS));
+	}
+}
@@ -0,0 +1,69 @@
+package com.example.CalanderCanvas;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Load test of HedgedFetcher against a stub whose latency has a long tail (1 call in 20 takes 20x longer):
+ * latency percentiles and upstream calls per request, with hedging off and with the shipped budget.
+ * Run with -Pbenchmark; it only reports numbers.
+ */
+@Tag("benchmark")
+class HedgingBenchmarkTests {
+
+	private static final int REQUESTS = 2000;
+	private static final int CONCURRENCY = 16;
+
+	@Test
+	void comparesTailLatencyWithAndWithoutHedging() throws IOException {
+		System.out.println("budget ratio   p50 ms   p95 ms   p99 ms   max ms   upstream calls/request");
+		for (double ratio : new double[]{0, 0.05, 0.2}) {
+			run(ratio);
+		}
+	}
+
+	private void run(double budgetRatio) throws IOException {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(CONCURRENCY * 2);
+		executor.initialize();
+		try (CanvasStub canvas = new CanvasStub()) {
+			canvas.route("/page", (call, uri) ->
+					CanvasStub.Reply.json("[]").after(ThreadLocalRandom.current().nextInt(20) == 0 ? 200 : 10));
+			CanvasResponseCache cache = new CanvasResponseCache(new InMemorySharedCache(), new ObjectMapper(), false, Duration.ofMinutes(5), 100);
+			HedgedFetcher fetcher = new HedgedFetcher(new RestTemplate(), executor, cache, 256, 20, Duration.ofMillis(5), budgetRatio, 10);
+
+			long[] millis = new long[REQUESTS];
+			List<CompletableFuture<Void>> workers = new ArrayList<>();
+			for (int w = 0; w < CONCURRENCY; w++) {
+				int first = w;
+				workers.add(CompletableFuture.runAsync(() -> {
+					for (int i = first; i < REQUESTS; i += CONCURRENCY) {
+						long start = System.nanoTime();
+						fetcher.get(canvas.base() + "/page").join();
+						millis[i] = (System.nanoTime() - start) / 1_000_000L;
+					}
+				}));
+			}
+			CompletableFuture.allOf(workers.toArray(CompletableFuture[]::new)).join();
+
+			Arrays.sort(millis);
+			System.out.printf("%12.2f %8d %8d %8d %8d %24.3f%n", budgetRatio, millis[REQUESTS / 2],
+					millis[REQUESTS * 95 / 100], millis[REQUESTS * 99 / 100], millis[REQUESTS - 1],
+					(double) canvas.calls("/page") / REQUESTS);
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package com.example.CalanderCanvas;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class KeyTableTests {
+
+	@Test
+	void matchesAHashMapThroughGrowthAndRemovals() {
+		KeyTable table = new KeyTable(4);
+		Map<Long, Integer> expected = new HashMap<>();
+		Random random = new Random(7);
+		for (int i = 0; i < 20_000; i++) {
+			// Few distinct keys, including negative ones, so probe runs collide and removals shift entries back.
+			long key = random.nextInt(2_000) - 1_000L;
+			if (random.nextInt(3) == 0) {
+				table.remove(key);
+				expected.remove(key);
+			} else {
+				table.put(key, i);
+				expected.put(key, i);
+			}
+		}
+		assertEquals(expected.size(), table.size());
+		for (long key = -1_000; key < 1_000; key++) {
+			assertEquals(expected.getOrDefault(key, -1), table.get(key));
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package com.example.CalanderCanvas;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+class NotificationBroadcasterTests {
+
+	private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+	NotificationBroadcasterTests() {
+		executor.setCorePoolSize(2);
+		executor.initialize();
+	}
+
+	private NotificationBroadcaster broadcaster(int queueCapacity) {
+		return new NotificationBroadcaster(executor, Jackson2ObjectMapperBuilder.json().build(), queueCapacity,
+				Duration.ofMinutes(30), Duration.ofMillis(100));
+	}
+
+	@AfterEach
+	void shutDown() {
+		executor.shutdown();
+	}
+
+	@Test
+	void stalledClientsDoNotHoldUpOthersAndAreDropped() throws Exception {
+		NotificationBroadcaster broadcaster = broadcaster(64);
+		RecordingEmitter stalled = new RecordingEmitter(new CountDownLatch(1));
+		RecordingEmitter first = new RecordingEmitter(null);
+		RecordingEmitter second = new RecordingEmitter(null);
+		broadcaster.subscribe(stalled);
+		broadcaster.subscribe(first);
+		broadcaster.subscribe(second);
+
+		broadcaster.onDatasetChange(new DatasetChange(1, List.of(), List.of(), List.of()));
+		broadcaster.onDatasetChange(new DatasetChange(2, TestItems.term(10), List.of(), List.of()));
+		assertTrue(first.await(11), "first subscriber got " + first.events.size() + " events");
+		assertTrue(second.await(11), "second subscriber got " + second.events.size() + " events");
+
+		Thread.sleep(150);
+		broadcaster.dropStalledSubscribers();
+		assertEquals(2, broadcaster.getSubscriberCount());
+		stalled.release.countDown();
+	}
+
+	@Test
+	void resyncAfterOverflowCarriesTheLatestVersion() throws Exception {
+		NotificationBroadcaster broadcaster = broadcaster(4);
+		broadcaster.onDatasetChange(new DatasetChange(7, List.of(), List.of(), List.of()));
+		RecordingEmitter slow = new RecordingEmitter(new CountDownLatch(1));
+		broadcaster.subscribe(slow);
+
+		// The first send blocks, so six heartbeats overflow the queue of four and are replaced by a RESYNC.
+		for (int i = 0; i < 6; i++) {
+			broadcaster.heartbeat();
+		}
+		slow.release.countDown();
+		assertTrue(slow.await(3), "got " + slow.events);
+		assertTrue(slow.events.stream().anyMatch(event -> event.contains("id:7\n") && event.contains("event:RESYNC\n")),
+				"got " + slow.events);
+	}
+
+	/**
+	 * Records what is sent instead of writing it; the first send blocks until release is counted down, if set.
+	 */
+	private static final class RecordingEmitter extends SseEmitter {
+		private final CountDownLatch release;
+		private final List<String> events = new CopyOnWriteArrayList<>();
+
+		private RecordingEmitter(CountDownLatch release) {
+			this.release = release;
+		}
+
+		@Override
+		public void send(SseEventBuilder builder) throws IOException {
+			if (release != null && events.isEmpty()) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+			}
+			StringBuilder text = new StringBuilder();
+			for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+				text.append(part.getData());
+			}
+			events.add(text.toString());
+		}
+
+		private boolean await(int count) throws InterruptedException {
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+			while (events.size() < count && System.nanoTime() < deadline) {
+				Thread.sleep(10);
+			}
+			return events.size() >= count;
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package com.example.CalanderCanvas;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class RespSharedCacheTests {
+
+	private static final Duration TTL = Duration.ofMinutes(5);
+	private static final byte[] VALUE = "response".getBytes(StandardCharsets.UTF_8);
+
+	private final RespTestServer server = new RespTestServer();
+	private final RespSharedCache nodeA = new RespSharedCache(List.of(server.address()), Duration.ofSeconds(1), 2);
+	private final RespSharedCache nodeB = new RespSharedCache(List.of(server.address()), Duration.ofSeconds(1), 2);
+
+	RespSharedCacheTests() throws IOException {
+	}
+
+	@AfterEach
+	void stop() throws IOException {
+		nodeA.destroy();
+		nodeB.destroy();
+		server.close();
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		for (int i = 0; i < 200 && !condition.getAsBoolean(); i++) {
+			Thread.sleep(10);
+		}
+		assertTrue(condition.getAsBoolean());
+	}
+
+	@Test
+	void sharesEntriesAndInvalidationsBetweenInstances() throws Exception {
+		List<String> invalidated = new CopyOnWriteArrayList<>();
+		nodeB.onInvalidate(invalidated::add);
+		await(() -> server.subscribers() == 2);
+
+		nodeA.put("tenant", "key", VALUE, nodeA.get("tenant", "key").generation(), TTL);
+		assertArrayEquals(VALUE, nodeB.get("tenant", "key").value());
+
+		nodeA.invalidate("tenant");
+		await(() -> invalidated.contains("tenant"));
+		assertNull(nodeB.get("tenant", "key").value());
+		assertEquals(1, nodeB.get("tenant", "key").generation());
+	}
+
+	@Test
+	void putFromAFetchStartedBeforeAnInvalidationIsIgnored() {
+		long before = nodeA.get("tenant", "key").generation();
+		nodeB.invalidate("tenant");
+		nodeA.put("tenant", "key", VALUE, before, TTL);
+		assertNull(nodeA.get("tenant", "key").value());
+
+		nodeA.put("tenant", "key", VALUE, nodeA.get("tenant", "key").generation(), TTL);
+		assertArrayEquals(VALUE, nodeA.get("tenant", "key").value());
+	}
+
+	@Test
+	void errorReplyOnlyFailsItsCommand() {
+		nodeA.put("tenant", "key", VALUE, 0, TTL);
+
+		server.replyNextWith("-OOM command not allowed when used memory > 'maxmemory'\r\n");
+		assertNull(nodeA.get("tenant", "key").value());
+		// The server is not treated as down, so the next lookup reaches it.
+		assertArrayEquals(VALUE, nodeA.get("tenant", "key").value());
+	}
+
+	@Test
+	void malformedReplyClosesTheConnection() throws Exception {
+		server.replyNextWith("$not-a-length\r\n");
+		assertNull(nodeA.get("tenant", "key").value());
+		await(() -> server.closedByClient.get() == 1);
+	}
+}
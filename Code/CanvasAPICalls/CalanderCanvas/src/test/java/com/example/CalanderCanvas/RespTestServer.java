@@ -0,0 +1,198 @@
+package com.example.CalanderCanvas;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A Redis-protocol server on a local port, implementing the commands RespSharedCache uses (GET, MGET, SET with
+ * PX, PEXPIRE, INCR, PUBLISH, SUBSCRIBE) closely enough to test it against a real socket. Expiry times are
+ * accepted but not enforced. The next reply can be replaced by an error or by a malformed line.
+ */
+final class RespTestServer implements AutoCloseable {
+
+	private final ServerSocket server;
+	private final Map<String, byte[]> data = new ConcurrentHashMap<>();
+	private final List<OutputStream> subscribers = new CopyOnWriteArrayList<>();
+	private final List<Socket> sockets = new CopyOnWriteArrayList<>();
+
+	// Replaces the next command's reply when set, e.g. "-OOM out of memory\r\n" or "$x\r\n".
+	private volatile String nextReply;
+
+	// Command connections (not subscriptions) the client has closed.
+	final AtomicInteger closedByClient = new AtomicInteger();
+
+	RespTestServer() throws IOException {
+		server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		Thread acceptor = new Thread(this::accept, "resp-test-server");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	String address() {
+		return "127.0.0.1:" + server.getLocalPort();
+	}
+
+	int subscribers() {
+		return subscribers.size();
+	}
+
+	void replyNextWith(String raw) {
+		nextReply = raw;
+	}
+
+	private void accept() {
+		while (!server.isClosed()) {
+			try {
+				Socket socket = server.accept();
+				sockets.add(socket);
+				Thread connection = new Thread(() -> serve(socket), "resp-test-connection");
+				connection.setDaemon(true);
+				connection.start();
+			} catch (IOException e) {
+				return;
+			}
+		}
+	}
+
+	private void serve(Socket socket) {
+		boolean subscriber = false;
+		try (socket) {
+			InputStream in = new BufferedInputStream(socket.getInputStream());
+			OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+			while (true) {
+				List<byte[]> command = readCommand(in);
+				if (command == null) {
+					if (!subscriber && !server.isClosed()) {
+						closedByClient.incrementAndGet();
+					}
+					return;
+				}
+				String name = text(command.get(0)).toUpperCase();
+				subscriber |= name.equals("SUBSCRIBE");
+				String raw = nextReply;
+				if (raw != null && !name.equals("SUBSCRIBE")) {
+					nextReply = null;
+					out.write(raw.getBytes(StandardCharsets.US_ASCII));
+				} else {
+					reply(name, command, out);
+				}
+				out.flush();
+			}
+		} catch (IOException e) {
+			// Closed by either side.
+		}
+	}
+
+	private void reply(String name, List<byte[]> command, OutputStream out) throws IOException {
+		switch (name) {
+			case "GET" -> bulk(out, data.get(text(command.get(1))));
+			case "MGET" -> {
+				out.write(("*" + (command.size() - 1) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+				for (int i = 1; i < command.size(); i++) {
+					bulk(out, data.get(text(command.get(i))));
+				}
+			}
+			case "SET" -> {
+				data.put(text(command.get(1)), command.get(2));
+				out.write("+OK\r\n".getBytes(StandardCharsets.US_ASCII));
+			}
+			case "PEXPIRE" -> integer(out, data.containsKey(text(command.get(1))) ? 1 : 0);
+			case "INCR" -> {
+				byte[] value = data.merge(text(command.get(1)), "1".getBytes(StandardCharsets.US_ASCII),
+						(old, one) -> Long.toString(Long.parseLong(text(old)) + 1).getBytes(StandardCharsets.US_ASCII));
+				integer(out, Long.parseLong(text(value)));
+			}
+			case "PUBLISH" -> {
+				for (OutputStream subscriber : subscribers) {
+					synchronized (subscriber) {
+						subscriber.write("*3\r\n".getBytes(StandardCharsets.US_ASCII));
+						bulk(subscriber, "message".getBytes(StandardCharsets.UTF_8));
+						bulk(subscriber, command.get(1));
+						bulk(subscriber, command.get(2));
+						subscriber.flush();
+					}
+				}
+				integer(out, subscribers.size());
+			}
+			case "SUBSCRIBE" -> {
+				out.write("*3\r\n".getBytes(StandardCharsets.US_ASCII));
+				bulk(out, "subscribe".getBytes(StandardCharsets.UTF_8));
+				bulk(out, command.get(1));
+				integer(out, 1);
+				subscribers.add(out);
+			}
+			default -> out.write(("-ERR unknown command '" + name + "'\r\n").getBytes(StandardCharsets.US_ASCII));
+		}
+	}
+
+	private static void bulk(OutputStream out, byte[] value) throws IOException {
+		if (value == null) {
+			out.write("$-1\r\n".getBytes(StandardCharsets.US_ASCII));
+			return;
+		}
+		out.write(("$" + value.length + "\r\n").getBytes(StandardCharsets.US_ASCII));
+		out.write(value);
+		out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+	}
+
+	private static void integer(OutputStream out, long value) throws IOException {
+		out.write((":" + value + "\r\n").getBytes(StandardCharsets.US_ASCII));
+	}
+
+	/**
+	 * Reads a command sent as an array of bulk strings, or returns null when the client closed the connection.
+	 */
+	private static List<byte[]> readCommand(InputStream in) throws IOException {
+		String header = readLine(in);
+		if (header == null) {
+			return null;
+		}
+		int count = Integer.parseInt(header.substring(1));
+		List<byte[]> args = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			int length = Integer.parseInt(readLine(in).substring(1));
+			args.add(in.readNBytes(length));
+			readLine(in);
+		}
+		return args;
+	}
+
+	private static String readLine(InputStream in) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		int b;
+		while ((b = in.read()) != '\r') {
+			if (b < 0) {
+				return null;
+			}
+			line.write(b);
+		}
+		in.read();
+		return line.toString(StandardCharsets.UTF_8);
+	}
+
+	private static String text(byte[] value) {
+		return new String(value, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public void close() throws IOException {
+		server.close();
+		for (Socket socket : sockets) {
+			socket.close();
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package com.example.CalanderCanvas;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+/**
+ * Query time and index size of SearchIndex over 20k items.
+ * Run with -Pbenchmark; it only reports numbers.
+ */
+@Tag("benchmark")
+class SearchBenchmarkTests {
+
+	@Test
+	void measuresSearchOver20kItems() {
+		String[] words = {"essay", "lab", "report", "quiz", "reading", "project", "midterm", "final", "homework", "draft"};
+		List<CanvasItem> items = new ArrayList<>();
+		for (int i = 0; i < 20_000; i++) {
+			items.add(TestItems.named("assignment:" + i, "Course " + (i % 40), words[i % words.length] + " " + i,
+					"Chapter " + (i % 300) + " " + words[(i / 7) % words.length], "2026-10-01T12:00:00Z"));
+		}
+		StaticListableBeanFactory listeners = new StaticListableBeanFactory();
+		CanvasDataset dataset = new CanvasDataset(listeners.getBeanProvider(DatasetListener.class), 100, false);
+		SearchIndex index = new SearchIndex(dataset);
+		listeners.addBean("index", index);
+		dataset.apply(items, Set.of());
+
+		// Best of many runs, so the number measures the index rather than JIT warm-up.
+		for (String query : new String[]{"re cou", "essay", "chapter 12 lab"}) {
+			long best = Long.MAX_VALUE;
+			int hits = 0;
+			for (int run = 0; run < 50; run++) {
+				long start = System.nanoTime();
+				hits = index.search(query, 20).size();
+				best = Math.min(best, System.nanoTime() - start);
+			}
+			System.out.printf("\"%s\": best %d us, %d hits%n", query, best / 1000, hits);
+		}
+		System.out.println(index.getStats());
+	}
+}
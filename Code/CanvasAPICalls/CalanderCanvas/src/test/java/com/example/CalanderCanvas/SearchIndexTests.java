@@ -0,0 +1,42 @@
+package com.example.CalanderCanvas;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+class SearchIndexTests {
+
+	private final StaticListableBeanFactory listeners = new StaticListableBeanFactory();
+	private final CanvasDataset dataset = new CanvasDataset(listeners.getBeanProvider(DatasetListener.class), 100, false);
+	private final SearchIndex index = new SearchIndex(dataset);
+
+	SearchIndexTests() {
+		listeners.addBean("index", index);
+	}
+
+	private static List<String> ids(List<CanvasItem> items) {
+		return items.stream().map(CanvasItem::id).toList();
+	}
+
+	@Test
+	void matchesPrefixesAndFollowsUpdates() {
+		CanvasItem essay = TestItems.named("assignment:1", "History 200", "Essay draft", "Write about the <b>Roman</b> empire", "2026-10-05T12:00:00Z");
+		CanvasItem lab = TestItems.named("assignment:2", "Chemistry", "Lab report", "History of the periodic table", "2026-10-01T12:00:00Z");
+		dataset.apply(List.of(essay, lab), Set.of());
+
+		// "hist" matches the course name of the essay and the description of the lab; the essay ranks first.
+		assertEquals(List.of("assignment:1", "assignment:2"), ids(index.search("hist", 10)));
+		assertEquals(List.of("assignment:1"), ids(index.search("HIST ess", 10)));
+		assertEquals(List.of(), ids(index.search("hist quiz", 10)));
+
+		CanvasItem renamed = TestItems.named("assignment:1", "History 200", "Final paper", null, "2026-10-05T12:00:00Z");
+		dataset.apply(List.of(renamed), Set.of());
+		assertEquals(List.of(), ids(index.search("essay", 10)));
+		assertEquals(List.of("assignment:1"), ids(index.search("hist", 10)));
+		assertEquals(1, index.getStats().items());
+	}
+}
@@ -0,0 +1,73 @@
+package com.example.CalanderCanvas;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * TestItems:
+ * CanvasItem and grade book fixtures shared by the tests and benchmarks.
+ */
+final class TestItems {
+
+	private TestItems() {
+	}
+
+	/**
+	 * An assignment of course {@code courseId} ("Course {courseId}") worth 10 points.
+	 */
+	static CanvasItem assignment(String id, String courseId, String due, Double earned) {
+		return new CanvasItem(id, CanvasItem.Type.ASSIGNMENT, courseId, "Course " + courseId, "HW " + id,
+				Instant.parse(due), 10.0, earned, null);
+	}
+
+	/**
+	 * An ungraded assignment worth 10 points whose course id and name are both {@code course}.
+	 */
+	static CanvasItem named(String id, String course, String name, String description, String due) {
+		return new CanvasItem(id, CanvasItem.Type.ASSIGNMENT, course, course, name,
+				due == null ? null : Instant.parse(due), 10.0, null, description);
+	}
+
+	/**
+	 * A calendar event without a course.
+	 */
+	static CanvasItem event(String id, String name, String start) {
+		return new CanvasItem(id, CanvasItem.Type.EVENT, null, null, name, Instant.parse(start), null, null, null);
+	}
+
+	/**
+	 * The i-th item of a generated term: assignments, quizzes and events spread over eight courses with
+	 * realistic names and descriptions. Each call builds new strings, as parsing a Canvas response would.
+	 */
+	static CanvasItem generated(int i) {
+		CanvasItem.Type type = i % 5 == 0 ? CanvasItem.Type.QUIZ : i % 7 == 0 ? CanvasItem.Type.EVENT : CanvasItem.Type.ASSIGNMENT;
+		String course = type == CanvasItem.Type.EVENT ? null : String.valueOf(1000 + i % 8);
+		return new CanvasItem(type.name().toLowerCase(Locale.ROOT) + ":" + (50_000 + i), type, course,
+				course == null ? null : "Course " + course + ": Introduction to Something",
+				"Homework " + i, Instant.parse("2026-09-01T23:59:00Z").plusSeconds(3600L * i),
+				type == CanvasItem.Type.EVENT ? null : 10.0 + i % 3, i % 2 == 0 ? 9.5 : null,
+				"Read chapter " + (i % 30) + " and answer questions " + i + " to " + (i + 10) + ".");
+	}
+
+	/**
+	 * Assignment {@code id} ("assignment:{id}", named "A{id}") as it appears in its assignment group.
+	 *
+	 * @param score The score, or null if ungraded.
+	 */
+	static GradeBook.AssignmentScore score(int id, double possible, Double score) {
+		return new GradeBook.AssignmentScore("assignment:" + id, "A" + id, possible, score);
+	}
+
+	/**
+	 * The first {@code count} generated items.
+	 */
+	static List<CanvasItem> term(int count) {
+		List<CanvasItem> items = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			items.add(generated(i));
+		}
+		return items;
+	}
+}